@@ -0,0 +1,40 @@
+#!/usr/bin/env bash
+# Runs load-test/login-transfer.js against the same jar twice, once on Tomcat's platform thread pool and once with
+# the virtual-threads profile, then prints throughput and p99 latency side by side.
+# Needs a Java 21+ runtime, k6, curl and jq. Build first with: mvn -Pjava21 package -DskipTests
+set -euo pipefail
+
+JAR=${JAR:-target/simplified-picpay-0.0.1-SNAPSHOT.jar}
+PROFILE=${PROFILE:-dev}
+PORT=${PORT:-8080}
+OUT=${OUT:-target/load-test}
+
+mkdir -p "$OUT"
+
+for mode in platform virtual; do
+    profiles=$PROFILE
+    [ "$mode" = virtual ] && profiles="$PROFILE,virtual-threads"
+
+    java -jar "$JAR" --spring.profiles.active="$profiles" --server.port="$PORT" --spring.jpa.show-sql=false > "$OUT/$mode.log" 2>&1 &
+    pid=$!
+    trap 'kill $pid 2>/dev/null || true' EXIT
+
+    until curl -sf "http://localhost:$PORT/user?size=1" > /dev/null; do
+        kill -0 $pid 2>/dev/null || { echo "Application failed to start, see $OUT/$mode.log"; exit 1; }
+        sleep 1
+    done
+
+    k6 run -q -e BASE_URL="http://localhost:$PORT" --summary-export "$OUT/$mode.json" load-test/login-transfer.js
+
+    kill $pid
+    wait $pid 2>/dev/null || true
+done
+
+printf '%-10s %14s %14s %16s %16s\n' mode 'logins/s' 'login p99 ms' 'transfers/s' 'transfer p99 ms'
+for mode in platform virtual; do
+    jq -r --arg mode "$mode" '[$mode,
+        (.metrics.logins.rate // 0), .metrics.login_duration["p(99)"],
+        (.metrics.transfers.rate // 0), .metrics.transfer_duration["p(99)"]]
+        | "\(.[0]) \(.[1]*100|round/100) \(.[2]*100|round/100) \(.[3]*100|round/100) \(.[4]*100|round/100)"' "$OUT/$mode.json" \
+        | xargs printf '%-10s %14s %14s %16s %16s\n'
+done
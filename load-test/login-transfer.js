@@ -0,0 +1,104 @@
+// k6 scenario for the two hottest endpoints: POST /user/login (BCrypt bound) and POST /transaction (JDBC bound).
+// Both run at a fixed arrival rate, so a slower mode shows up as higher latency and dropped iterations rather
+// than as a lower request rate. Usage: k6 run -e BASE_URL=http://localhost:8080 load-test/login-transfer.js
+import http from 'k6/http';
+import { check } from 'k6';
+import { Counter, Trend } from 'k6/metrics';
+
+const BASE_URL = __ENV.BASE_URL || 'http://localhost:8080';
+const USERS = parseInt(__ENV.USERS || '200');
+const DURATION = __ENV.DURATION || '1m';
+const PASSWORD = 'load-test-password';
+const JSON_HEADERS = { 'Content-Type': 'application/json' };
+
+const loginDuration = new Trend('login_duration', true);
+const transferDuration = new Trend('transfer_duration', true);
+const logins = new Counter('logins');
+const transfers = new Counter('transfers');
+
+export const options = {
+    setupTimeout: '5m',
+    summaryTrendStats: ['avg', 'p(50)', 'p(95)', 'p(99)', 'max'],
+    scenarios: {
+        login: {
+            executor: 'constant-arrival-rate',
+            exec: 'login',
+            rate: parseInt(__ENV.LOGIN_RATE || '50'),
+            timeUnit: '1s',
+            duration: DURATION,
+            preAllocatedVUs: 50,
+            maxVUs: 500,
+        },
+        transfer: {
+            executor: 'constant-arrival-rate',
+            exec: 'transfer',
+            rate: parseInt(__ENV.TRANSFER_RATE || '200'),
+            timeUnit: '1s',
+            duration: DURATION,
+            preAllocatedVUs: 100,
+            maxVUs: 1000,
+        },
+    },
+};
+
+function randomCpf() {
+    const digits = [];
+    for (let i = 0; i < 9; i++) digits.push(Math.floor(Math.random() * 10));
+    for (let length = 9; length <= 10; length++) {
+        let sum = 0;
+        for (let i = 0; i < length; i++) sum += digits[i] * (length + 1 - i);
+        digits.push(sum % 11 < 2 ? 0 : 11 - sum % 11);
+    }
+    return digits.join('');
+}
+
+export function setup() {
+    const users = [];
+    for (let i = 0; i < USERS; i++) {
+        const email = `load-${Date.now()}-${i}@example.com`;
+        const response = http.post(`${BASE_URL}/user/register`, JSON.stringify({
+            name: `Load ${i}`,
+            document: randomCpf(),
+            email: email,
+            password: PASSWORD,
+            balance: 1000000,
+            userType: 'COMMON',
+        }), { headers: JSON_HEADERS });
+        if (response.status !== 201) continue;
+
+        const location = response.headers['Location'];
+        users.push({
+            id: parseInt(location.substring(location.lastIndexOf('/') + 1)),
+            email: email,
+            token: response.json('token'),
+        });
+    }
+    if (users.length < 2) throw new Error(`Only ${users.length} users could be registered`);
+    return { users: users };
+}
+
+function pick(users) {
+    return users[Math.floor(Math.random() * users.length)];
+}
+
+export function login(data) {
+    const user = pick(data.users);
+    const response = http.post(`${BASE_URL}/user/login`, JSON.stringify({ email: user.email, password: PASSWORD }),
+        { headers: JSON_HEADERS, tags: { name: 'login' } });
+    loginDuration.add(response.timings.duration);
+    if (check(response, { 'login succeeded': r => r.status === 200 })) logins.add(1);
+}
+
+export function transfer(data) {
+    const payer = pick(data.users);
+    let payee = pick(data.users);
+    while (payee.id === payer.id) payee = pick(data.users);
+
+    const response = http.post(`${BASE_URL}/transaction`, JSON.stringify({
+        transactionValue: 0.01,
+        payerId: payer.id,
+        payeeId: payee.id,
+    }), { headers: Object.assign({ Authorization: `Bearer ${payer.token}` }, JSON_HEADERS), tags: { name: 'transfer' } });
+    transferDuration.add(response.timings.duration);
+    if (check(response, { 'transfer succeeded': r => r.status === 201 })) transfers.add(1);
+}
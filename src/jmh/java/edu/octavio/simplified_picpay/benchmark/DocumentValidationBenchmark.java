@@ -0,0 +1,67 @@
+package edu.octavio.simplified_picpay.benchmark;
+
+import edu.octavio.simplified_picpay.UserFixtures;
+import edu.octavio.simplified_picpay.service.document.DocumentValidator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+/**
+ * CPF/CNPJ validation of a single document, already normalized or formatted, and of an onboarding-sized batch.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DocumentValidationBenchmark {
+    private static final int BATCH_SIZE = 1_000_000;
+
+    @Param({"529.982.247-25", "11.222.333/0001-81"})
+    private String formattedDocument;
+
+    private DocumentValidator validator;
+    private String document;
+    private List<String> batch;
+
+    @Setup
+    public void setUp() {
+        validator = new DocumentValidator();
+        document = validator.normalize(formattedDocument);
+        batch = IntStream.range(0, BATCH_SIZE).mapToObj(i -> UserFixtures.randomCpf()).toList();
+    }
+
+    @Benchmark
+    public boolean validate() {
+        return validator.isValid(document);
+    }
+
+    @Benchmark
+    public boolean validateFormatted() {
+        return validator.isValid(formattedDocument);
+    }
+
+    @Benchmark
+    public String normalize() {
+        return validator.normalize(formattedDocument);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public boolean[] validateBatch() {
+        return validator.validateAll(batch);
+    }
+}
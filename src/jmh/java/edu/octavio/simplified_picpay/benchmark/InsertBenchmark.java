@@ -0,0 +1,133 @@
+package edu.octavio.simplified_picpay.benchmark;
+
+import edu.octavio.simplified_picpay.Application;
+import edu.octavio.simplified_picpay.UserFixtures;
+import edu.octavio.simplified_picpay.domain.model.Transaction;
+import edu.octavio.simplified_picpay.domain.model.User;
+import edu.octavio.simplified_picpay.domain.model.enums.UserType;
+import edu.octavio.simplified_picpay.domain.repository.UserRepository;
+import edu.octavio.simplified_picpay.service.UserService;
+import edu.octavio.simplified_picpay.service.batch.BatchTransferItem;
+import edu.octavio.simplified_picpay.service.batch.BatchTransferService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Rows inserted per second by a bulk user import and by a batch transfer, {@value #ROWS} rows per transaction.
+ * With sequence ids, Hibernate knows every id before flushing and sends the inserts in JDBC batches of
+ * {@code batchSize}; a batch size of 1 is one statement per row, which is all IDENTITY ids allowed.
+ * <p>
+ * {@link #importUsers} saves through the repository, the raw insert path a bulk import would use.
+ * {@link #createUsers} goes through {@link UserService#create}, as registering does, which flushes every user on its
+ * own to report a duplicate and also writes the opening ledger entry and the balance stripes.
+ * <p>
+ * H2 runs in process, so a statement costs no network round trip. These numbers compare batch sizes on H2 only;
+ * Postgres, where {@code reWriteBatchedInserts} also turns each batch into multi-row inserts, needs its own run.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@OperationsPerInvocation(InsertBenchmark.ROWS)
+public class InsertBenchmark {
+    static final int ROWS = 200;
+    private static final BigDecimal VALUE = new BigDecimal("0.01");
+
+    @State(Scope.Benchmark)
+    public static class ApplicationState {
+        @Param({"1", "50"})
+        public int batchSize;
+
+        private final AtomicLong documents = new AtomicLong();
+        private ConfigurableApplicationContext context;
+        private UserRepository userRepository;
+        private UserService userService;
+        private BatchTransferService batchTransferService;
+        private TransactionTemplate transactionTemplate;
+        private Long payerId;
+        private List<BatchTransferItem> payroll;
+
+        @Setup(Level.Trial)
+        public void start() {
+            context = new SpringApplicationBuilder(Application.class)
+                    .web(WebApplicationType.NONE)
+                    .profiles("dev")
+                    .properties("spring.datasource.url=jdbc:h2:mem:picpay_insert_benchmark",
+                            "spring.jpa.show-sql=false",
+                            "spring.jpa.properties.hibernate.jdbc.batch_size=" + batchSize,
+                            "logging.level.root=warn")
+                    .run();
+            userRepository = context.getBean(UserRepository.class);
+            batchTransferService = context.getBean(BatchTransferService.class);
+            transactionTemplate = context.getBean(TransactionTemplate.class);
+
+            userService = context.getBean(UserService.class);
+            payerId = userService.create(UserFixtures.newUser(UserType.COMMON, new BigDecimal("1000000000.00"))).getId();
+            payroll = new ArrayList<>(ROWS);
+            for (int i = 0; i < ROWS; i++) {
+                Long payeeId = userService.create(UserFixtures.newUser(UserType.COMMON, BigDecimal.ZERO)).getId();
+                payroll.add(new BatchTransferItem(payeeId, VALUE));
+            }
+        }
+
+        @TearDown(Level.Trial)
+        public void stop() {
+            context.close();
+        }
+
+        private User newUser() {
+            User user = UserFixtures.newUser(UserType.COMMON, BigDecimal.ZERO);
+            // Random CPFs would eventually collide over millions of rows.
+            user.setDocument(UserFixtures.cpf(documents.incrementAndGet()));
+            return user;
+        }
+    }
+
+    @Benchmark
+    public List<User> importUsers(ApplicationState application) {
+        List<User> users = new ArrayList<>(ROWS);
+        for (int i = 0; i < ROWS; i++) {
+            users.add(application.newUser());
+        }
+        return application.transactionTemplate.execute(status -> application.userRepository.saveAll(users));
+    }
+
+    @Benchmark
+    public List<User> createUsers(ApplicationState application) {
+        return application.transactionTemplate.execute(status -> {
+            List<User> users = new ArrayList<>(ROWS);
+            for (int i = 0; i < ROWS; i++) {
+                users.add(application.userService.create(application.newUser()));
+            }
+            return users;
+        });
+    }
+
+    @Benchmark
+    public List<Transaction> batchTransfer(ApplicationState application) {
+        return application.batchTransferService.transfer(application.payerId, application.payroll);
+    }
+}
@@ -0,0 +1,98 @@
+package edu.octavio.simplified_picpay.benchmark;
+
+import edu.octavio.simplified_picpay.Application;
+import edu.octavio.simplified_picpay.UserFixtures;
+import edu.octavio.simplified_picpay.domain.model.Transaction;
+import edu.octavio.simplified_picpay.domain.model.User;
+import edu.octavio.simplified_picpay.domain.model.enums.UserType;
+import edu.octavio.simplified_picpay.service.TransactionService;
+import edu.octavio.simplified_picpay.service.UserService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Transfers from many payers into a single merchant, with its balance split across {@code stripes} rows
+ * (0 keeps every credit on the merchant's user row). Each thread has its own payer, so the only shared row
+ * is the merchant's and throughput shows how much striping relieves it.
+ * <p>
+ * The numbers compare stripe counts on in-process H2 only. Postgres commits and waits on row locks differently,
+ * so how the gap carries over has to be measured against it.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@Threads(16)
+public class MerchantCreditBenchmark {
+    private static final BigDecimal VALUE = new BigDecimal("0.01");
+
+    @State(Scope.Benchmark)
+    public static class ApplicationState {
+        @Param({"0", "4", "16", "64"})
+        public int stripes;
+
+        private ConfigurableApplicationContext context;
+        private TransactionService transactionService;
+        private UserService userService;
+        private User merchant;
+
+        @Setup(Level.Trial)
+        public void start() {
+            context = new SpringApplicationBuilder(Application.class)
+                    .web(WebApplicationType.NONE)
+                    .profiles("dev")
+                    .properties("spring.datasource.url=jdbc:h2:mem:picpay_merchant_benchmark;LOCK_TIMEOUT=10000",
+                            "spring.jpa.show-sql=false",
+                            "logging.level.root=warn",
+                            "api.balance.stripes.merchant-stripes=" + stripes)
+                    .run();
+            transactionService = context.getBean(TransactionService.class);
+            userService = context.getBean(UserService.class);
+            merchant = userService.create(UserFixtures.newUser(UserType.MERCHANT, BigDecimal.ZERO));
+        }
+
+        @TearDown(Level.Trial)
+        public void stop() {
+            context.close();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class PayerState {
+        private Transaction transaction;
+
+        @Setup(Level.Trial)
+        public void createPayer(ApplicationState application) {
+            User payer = application.userService.create(UserFixtures.newUser(UserType.COMMON, new BigDecimal("1000000000.00")));
+
+            transaction = new Transaction();
+            transaction.setPayer(payer);
+            transaction.setPayee(application.merchant);
+            transaction.setTransactionValue(VALUE);
+        }
+    }
+
+    @Benchmark
+    public Transaction creditMerchant(ApplicationState application, PayerState payer) {
+        return application.transactionService.create(payer.transaction);
+    }
+}
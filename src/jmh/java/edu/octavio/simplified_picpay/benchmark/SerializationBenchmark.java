@@ -0,0 +1,85 @@
+package edu.octavio.simplified_picpay.benchmark;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import edu.octavio.simplified_picpay.controller.dto.TransactionDtoOut;
+import edu.octavio.simplified_picpay.controller.dto.UserDto;
+import edu.octavio.simplified_picpay.domain.model.enums.UserType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.LongStream;
+
+/**
+ * JSON serialization of the response DTOs with the same ObjectMapper setup Spring MVC uses,
+ * for a single body and for a default-sized page.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SerializationBenchmark {
+    private static final int PAGE_SIZE = 50;
+
+    private ObjectMapper objectMapper;
+    private TransactionDtoOut transaction;
+    private List<TransactionDtoOut> transactionPage;
+    private UserDto user;
+    private List<UserDto> userPage;
+
+    @Setup
+    public void setUp() {
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        transaction = transaction(1L);
+        transactionPage = LongStream.rangeClosed(1, PAGE_SIZE).mapToObj(SerializationBenchmark::transaction).toList();
+        user = user(1L);
+        userPage = LongStream.rangeClosed(1, PAGE_SIZE).mapToObj(SerializationBenchmark::user).toList();
+    }
+
+    @Benchmark
+    public byte[] transaction() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(transaction);
+    }
+
+    @Benchmark
+    public byte[] transactionPage() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(transactionPage);
+    }
+
+    @Benchmark
+    public byte[] user() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(user);
+    }
+
+    @Benchmark
+    public byte[] userPage() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(userPage);
+    }
+
+    private static TransactionDtoOut transaction(long id) {
+        return new TransactionDtoOut(id, new BigDecimal("125.50"),
+                new TransactionDtoOut.Participant(2 * id, "Octavio"),
+                new TransactionDtoOut.Participant(2 * id + 1, "Google"),
+                LocalDateTime.of(2024, 9, 30, 9, 56, 3, 883_737_000));
+    }
+
+    private static UserDto user(long id) {
+        return new UserDto(id, "Octavio", "52998224725", "user" + id + "@example.com",
+                "$2a$10$7EqJtq98hPqEX7fNZaFWoOhi5BWX4Z6Nn6bO1Iq4Yd3e1Q9n5bW6S", new BigDecimal("1000.00"), UserType.COMMON);
+    }
+}
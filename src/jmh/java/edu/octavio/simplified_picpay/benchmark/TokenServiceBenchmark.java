@@ -0,0 +1,76 @@
+package edu.octavio.simplified_picpay.benchmark;
+
+import com.auth0.jwt.JWT;
+import com.auth0.jwt.JWTVerifier;
+import com.auth0.jwt.algorithms.Algorithm;
+import edu.octavio.simplified_picpay.domain.model.User;
+import edu.octavio.simplified_picpay.infra.metrics.PaymentMetrics;
+import edu.octavio.simplified_picpay.infra.security.TokenService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token verification as it was (a new HMAC512 algorithm and verifier per call) against a verifier built once, as
+ * {@link TokenService} shares it, and against the verified-token cache in front of it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+public class TokenServiceBenchmark {
+    private static final String SECRET = "6QIvXXuA3jj18lkzQq3qc1TdxnUmckIW916TCHHDbWM=";
+
+    private TokenService tokenService;
+    private JWTVerifier sharedVerifier;
+    private User user;
+    private String token;
+
+    @Setup
+    public void setUp() {
+        PaymentMetrics metrics = new PaymentMetrics(new SimpleMeterRegistry());
+        tokenService = new TokenService(SECRET, 10_000, metrics);
+        sharedVerifier = JWT.require(Algorithm.HMAC512(SECRET)).withIssuer("picpay").build();
+        user = new User();
+        user.setEmail("benchmark@example.com");
+        token = tokenService.generateToken(user);
+    }
+
+    @Benchmark
+    public String verifyRebuildingAlgorithmPerCall() {
+        return JWT.require(Algorithm.HMAC512(SECRET))
+                .withIssuer("picpay")
+                .build()
+                .verify(token)
+                .getSubject();
+    }
+
+    @Benchmark
+    public String verifySharedVerifier() {
+        return sharedVerifier.verify(token).getSubject();
+    }
+
+    @Benchmark
+    public String verifyCached() {
+        return tokenService.validadeToken(token);
+    }
+
+    @Benchmark
+    public String generate() {
+        return tokenService.generateToken(user);
+    }
+}
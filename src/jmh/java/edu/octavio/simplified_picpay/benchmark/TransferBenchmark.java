@@ -0,0 +1,89 @@
+package edu.octavio.simplified_picpay.benchmark;
+
+import edu.octavio.simplified_picpay.Application;
+import edu.octavio.simplified_picpay.UserFixtures;
+import edu.octavio.simplified_picpay.domain.model.Transaction;
+import edu.octavio.simplified_picpay.domain.model.User;
+import edu.octavio.simplified_picpay.domain.model.enums.UserType;
+import edu.octavio.simplified_picpay.service.TransactionService;
+import edu.octavio.simplified_picpay.service.UserService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End-to-end {@link TransactionService#create} against the dev H2 database: validation, the conditional
+ * debit/credit updates and the insert, each in its own transaction. Every thread moves money between its
+ * own pair of accounts, so the numbers measure the write path rather than row contention.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@Threads(4)
+public class TransferBenchmark {
+    private static final BigDecimal VALUE = new BigDecimal("0.01");
+
+    @State(Scope.Benchmark)
+    public static class ApplicationState {
+        private ConfigurableApplicationContext context;
+        private TransactionService transactionService;
+        private UserService userService;
+
+        @Setup(Level.Trial)
+        public void start() {
+            context = new SpringApplicationBuilder(Application.class)
+                    .web(WebApplicationType.NONE)
+                    .profiles("dev")
+                    .properties("spring.datasource.url=jdbc:h2:mem:picpay_benchmark;LOCK_TIMEOUT=10000",
+                            "spring.jpa.show-sql=false",
+                            "logging.level.root=warn")
+                    .run();
+            transactionService = context.getBean(TransactionService.class);
+            userService = context.getBean(UserService.class);
+        }
+
+        @TearDown(Level.Trial)
+        public void stop() {
+            context.close();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class AccountsState {
+        private Transaction transaction;
+
+        @Setup(Level.Trial)
+        public void createAccounts(ApplicationState application) {
+            User payer = application.userService.create(UserFixtures.newUser(UserType.COMMON, new BigDecimal("1000000000.00")));
+            User payee = application.userService.create(UserFixtures.newUser(UserType.COMMON, BigDecimal.ZERO));
+
+            transaction = new Transaction();
+            transaction.setPayer(payer);
+            transaction.setPayee(payee);
+            transaction.setTransactionValue(VALUE);
+        }
+    }
+
+    @Benchmark
+    public Transaction create(ApplicationState application, AccountsState accounts) {
+        return application.transactionService.create(accounts.transaction);
+    }
+}
@@ -1,39 +1,69 @@
 package edu.octavio.simplified_picpay.controller;
 
+import edu.octavio.simplified_picpay.controller.dto.BatchTransferDtoIn;
 import edu.octavio.simplified_picpay.controller.dto.TransactionDtoIn;
 import edu.octavio.simplified_picpay.controller.dto.TransactionDtoOut;
-import edu.octavio.simplified_picpay.infra.security.TokenService;
+import edu.octavio.simplified_picpay.controller.pagination.KeysetPagination;
+import edu.octavio.simplified_picpay.controller.streaming.NdjsonStreaming;
+import edu.octavio.simplified_picpay.domain.model.enums.TransactionDirection;
+import edu.octavio.simplified_picpay.infra.security.AuthenticatedUser;
+import edu.octavio.simplified_picpay.service.TransactionCursor;
 import edu.octavio.simplified_picpay.service.TransactionService;
-import edu.octavio.simplified_picpay.service.UserService;
+import edu.octavio.simplified_picpay.service.async.AsyncTransferService;
+import edu.octavio.simplified_picpay.service.async.TransferStatus;
+import edu.octavio.simplified_picpay.service.batch.BatchTransferService;
 import edu.octavio.simplified_picpay.service.exception.BusinessException;
+import edu.octavio.simplified_picpay.service.exception.NotFoundException;
+import edu.octavio.simplified_picpay.service.retry.TransferRetryPolicy;
+import edu.octavio.simplified_picpay.service.retry.TransferRetryStats;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
 import java.net.URI;
+import java.time.LocalDateTime;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Objects;
 
 @RestController
 @RequestMapping("/transaction")
 @Tag(name = "Transactions controller", description = "RESTful API for managing transactions.")
-public record TransactionController(TransactionService service, UserService userService, PasswordEncoder passwordEncoder, TokenService tokenService) {
+public record TransactionController(TransactionService service, AsyncTransferService asyncTransferService, BatchTransferService batchTransferService,
+                                    TransferRetryPolicy retryPolicy, KeysetPagination pagination, NdjsonStreaming ndjsonStreaming) {
+    private static final String RESPOND_ASYNC = "respond-async";
+
     @GetMapping
-    @Operation(summary = "Get all transactions", description = "Retrieve a list of all created transactions")
+    @Operation(summary = "Get all transactions", description = "Retrieve a page of created transactions ordered by id. When the page is full, the Link header points at the next one")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Operation successful"),
+            @ApiResponse(responseCode = "422", description = "Invalid page size"),
             @ApiResponse(responseCode = "500", description = "Internal server error")
     })
-    public ResponseEntity<List<TransactionDtoOut>> findAll() {
-        var transactions = service.findAll();
+    public ResponseEntity<List<TransactionDtoOut>> findAll(@RequestParam(required = false) Long after, @RequestParam(required = false) Integer size) {
+        int pageSize = pagination.size(size);
+        var transactions = service.findPage(after, pageSize);
         var transactionsDto = transactions.stream().map(TransactionDtoOut::new).toList();
-        return ResponseEntity.ok(transactionsDto);
+        return pagination.page(transactionsDto, pageSize, TransactionDtoOut::id);
+    }
+
+    @GetMapping(value = "/stream", produces = NdjsonStreaming.APPLICATION_NDJSON_VALUE)
+    @Operation(summary = "Stream all transactions", description = "Stream every created transaction as newline-delimited JSON")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Operation successful"),
+            @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    public ResponseEntity<StreamingResponseBody> streamAll() {
+        return ndjsonStreaming.stream(service::streamAll, TransactionDtoOut::new);
     }
 
     @Operation(summary = "Get transaction by id", description = "Retrieve the user with specified id", security = @SecurityRequirement(name = "bearerAuth"))
@@ -45,47 +75,117 @@ public record TransactionController(TransactionService service, UserService user
             @ApiResponse(responseCode = "500", description = "Internal server error")
     })
     @GetMapping("/{id}")
-    public ResponseEntity<TransactionDtoOut> findById(@PathVariable Long id, @RequestHeader("Authorization") String authorizationHeader) {
-        String token = authorizationHeader.replace("Bearer ", "");
-        var user = userService.findByEmail(tokenService.validadeToken(token));
-        var transaction = service.findById(id);
-        if (Objects.equals(user.getId(), transaction.getPayer().getId())) {
-            TransactionDtoOut dtoOut = new TransactionDtoOut(transaction);
-            dtoOut.payee().setPassword(null);
-            dtoOut.payee().setBalance(null);
-            return ResponseEntity.ok(dtoOut);
-        } else if (Objects.equals(user.getId(), transaction.getPayee().getId())) {
-            TransactionDtoOut dtoOut = new TransactionDtoOut(transaction);
-            dtoOut.payer().setPassword(null);
-            dtoOut.payer().setBalance(null);
-            return ResponseEntity.ok(dtoOut);
-        }
+    public ResponseEntity<TransactionDtoOut> findById(@PathVariable Long id, @AuthenticationPrincipal AuthenticatedUser principal) {
+        var transaction = service.findViewById(id);
+        if (Objects.equals(principal.id(), transaction.payerId()) || Objects.equals(principal.id(), transaction.payeeId()))
+            return ResponseEntity.ok(new TransactionDtoOut(transaction));
         return ResponseEntity.badRequest().build();
     }
 
-    @Operation(summary = "Create a transaction", description = "Create a new transaction", security = @SecurityRequirement(name = "bearerAuth"))
+    @Operation(summary = "Get my transactions", description = "Retrieve a page of the authenticated user's transactions, newest first. When the page is full, the Link header points at the next one", security = @SecurityRequirement(name = "bearerAuth"))
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Operation successful"),
+            @ApiResponse(responseCode = "403", description = "Unauthorized"),
+            @ApiResponse(responseCode = "422", description = "Invalid page size or cursor"),
+            @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    @GetMapping("/me")
+    public ResponseEntity<List<TransactionDtoOut>> findMine(@AuthenticationPrincipal AuthenticatedUser principal,
+                                                            @RequestParam(required = false) TransactionDirection direction,
+                                                            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+                                                            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+                                                            @RequestParam(required = false) String after,
+                                                            @RequestParam(required = false) Integer size) {
+        int pageSize = pagination.size(size);
+        var cursor = after == null ? null : TransactionCursor.parse(after);
+
+        var transactions = service.findHistory(principal.id(), direction, from, to, cursor, pageSize);
+        var transactionsDto = transactions.stream().map(TransactionDtoOut::new).toList();
+        return pagination.page(transactionsDto, pageSize, dto -> new TransactionCursor(dto.createdAt(), dto.id()));
+    }
+
+    @Operation(summary = "Create a transaction", description = "Create a new transaction. Repeating a request with the same Idempotency-Key returns the original transaction instead of moving money again. " +
+            "When asynchronous transfers are enabled, 'Prefer: respond-async' queues the transfer and returns its status instead", security = @SecurityRequirement(name = "bearerAuth"))
     @ApiResponses(value = {
             @ApiResponse(responseCode = "201", description = "Created successful"),
+            @ApiResponse(responseCode = "202", description = "Transfer queued"),
             @ApiResponse(responseCode = "403", description = "Unauthorized"),
             @ApiResponse(responseCode = "422", description = "Error while creating transaction"),
-            @ApiResponse(responseCode = "500", description = "Internal server error")
+            @ApiResponse(responseCode = "429", description = "Transfer queue is full"),
+            @ApiResponse(responseCode = "500", description = "Internal server error"),
+            @ApiResponse(responseCode = "503", description = "Transfer authorizer unavailable")
     })
     @PostMapping
-    public ResponseEntity<TransactionDtoOut> create(@RequestBody TransactionDtoIn transactionDtoIn, @RequestHeader("Authorization") String authorizationHeader) {
+    public ResponseEntity<?> create(@RequestBody TransactionDtoIn transactionDtoIn, @AuthenticationPrincipal AuthenticatedUser principal,
+                                    @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
+                                    @RequestHeader(value = "Prefer", required = false) String prefer) {
         if (Objects.equals(transactionDtoIn.payeeId(), transactionDtoIn.payerId())) throw new BusinessException("payer id and payee id must be different");
 
-        String token = authorizationHeader.replace("Bearer ", "");
-        var user = userService.findByEmail(tokenService.validadeToken(token));
-        if (!Objects.equals(user.getId(), transactionDtoIn.payerId())) throw new BusinessException("the authenticated user must be the payer");
+        if (!Objects.equals(principal.id(), transactionDtoIn.payerId())) throw new BusinessException("the authenticated user must be the payer");
+
+        if (asyncTransferService.isEnabled() && prefersAsync(prefer)) {
+            var status = asyncTransferService.submit(transactionDtoIn.payerId(), transactionDtoIn.payeeId(), transactionDtoIn.transactionValue(), idempotencyKey);
+            URI location = ServletUriComponentsBuilder.fromCurrentRequest()
+                    .path("/transfers/{transferId}")
+                    .buildAndExpand(status.id())
+                    .toUri();
+            return ResponseEntity.accepted().location(location).header("Preference-Applied", RESPOND_ASYNC).body(status);
+        }
 
-        var transaction = service.create(transactionDtoIn.toModel(userService));
+        var transaction = service.transfer(transactionDtoIn.payerId(), transactionDtoIn.payeeId(), transactionDtoIn.transactionValue(), idempotencyKey);
         URI location = ServletUriComponentsBuilder.fromCurrentRequest()
                 .path("/{id}")
-                .buildAndExpand(transaction.getId())
+                .buildAndExpand(transaction.id())
                 .toUri();
-        TransactionDtoOut dtoOut = new TransactionDtoOut(transaction);
-        dtoOut.payee().setBalance(null);
-        dtoOut.payee().setPassword(null);
-        return ResponseEntity.created(location).body(dtoOut);
+        return ResponseEntity.created(location).body(new TransactionDtoOut(transaction));
+    }
+
+    @Operation(summary = "Create a batch of transactions", description = "Pay many payees from the authenticated user at once. Either every transaction is created or none is; " +
+            "when some items are invalid, the response lists why each of them was rejected", security = @SecurityRequirement(name = "bearerAuth"))
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "201", description = "Created successful"),
+            @ApiResponse(responseCode = "403", description = "Unauthorized"),
+            @ApiResponse(responseCode = "422", description = "Error while creating the transactions"),
+            @ApiResponse(responseCode = "500", description = "Internal server error"),
+            @ApiResponse(responseCode = "503", description = "Transfer authorizer unavailable")
+    })
+    @PostMapping("/batch")
+    public ResponseEntity<List<TransactionDtoOut>> createBatch(@RequestBody BatchTransferDtoIn batchTransferDtoIn, @AuthenticationPrincipal AuthenticatedUser principal) {
+        if (!Objects.equals(principal.id(), batchTransferDtoIn.payerId())) throw new BusinessException("the authenticated user must be the payer");
+
+        var transactions = batchTransferService.transfer(batchTransferDtoIn.payerId(), batchTransferDtoIn.toItems());
+        return ResponseEntity.status(HttpStatus.CREATED).body(transactions.stream().map(TransactionDtoOut::new).toList());
+    }
+
+    @Operation(summary = "Get asynchronous transfer status", description = "Retrieve the status of a queued transfer. Once completed, it holds the created transaction id", security = @SecurityRequirement(name = "bearerAuth"))
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Operation successful"),
+            @ApiResponse(responseCode = "403", description = "Unauthorized"),
+            @ApiResponse(responseCode = "404", description = "Not found transfer with specified id"),
+            @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    @GetMapping("/transfers/{transferId}")
+    public ResponseEntity<TransferStatus> findTransferStatus(@PathVariable String transferId, @AuthenticationPrincipal AuthenticatedUser principal) {
+        var status = asyncTransferService.findStatus(transferId);
+        if (!Objects.equals(principal.id(), status.payerId()))
+            throw new NotFoundException();
+        return ResponseEntity.ok(status);
+    }
+
+    @Operation(summary = "Get transfer retry statistics", description = "Retrieve how often transfers conflicted with concurrent writers and were retried. Admins only", security = @SecurityRequirement(name = "bearerAuth"))
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Operation successful"),
+            @ApiResponse(responseCode = "403", description = "Unauthorized"),
+            @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    @GetMapping("/retry-stats")
+    public ResponseEntity<TransferRetryStats> retryStats() {
+        return ResponseEntity.ok(retryPolicy.stats());
+    }
+
+    private static boolean prefersAsync(String prefer) {
+        return prefer != null && Arrays.stream(prefer.split(","))
+                .map(String::trim)
+                .anyMatch(RESPOND_ASYNC::equalsIgnoreCase);
     }
 }
@@ -1,38 +1,60 @@
 package edu.octavio.simplified_picpay.controller;
 
+import edu.octavio.simplified_picpay.controller.dto.BalanceDto;
 import edu.octavio.simplified_picpay.controller.dto.LoginResponseDto;
 import edu.octavio.simplified_picpay.controller.dto.UserDto;
+import edu.octavio.simplified_picpay.controller.pagination.KeysetPagination;
+import edu.octavio.simplified_picpay.controller.streaming.NdjsonStreaming;
 import edu.octavio.simplified_picpay.domain.model.User;
+import edu.octavio.simplified_picpay.infra.security.AuthenticatedUser;
+import edu.octavio.simplified_picpay.infra.security.PasswordHasher;
 import edu.octavio.simplified_picpay.infra.security.TokenService;
 import edu.octavio.simplified_picpay.service.UserService;
+import edu.octavio.simplified_picpay.service.exception.NotFoundException;
+import edu.octavio.simplified_picpay.service.ledger.LedgerService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
 import java.net.URI;
 import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
 
 @RestController
 @RequestMapping("/user")
 @Tag(name = "Users controller", description = "RESTful API for managing users.")
-public record UserController(UserService service, PasswordEncoder passwordEncoder, TokenService tokenService) {
+public record UserController(UserService service, LedgerService ledgerService, PasswordHasher passwordHasher, TokenService tokenService,
+                             KeysetPagination pagination, NdjsonStreaming ndjsonStreaming) {
     @GetMapping
-    @Operation(summary = "Get all users", description = "Retrieve a list of all registered users")
+    @Operation(summary = "Get all users", description = "Retrieve a page of registered users ordered by id. When the page is full, the Link header points at the next one")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Operation successful"),
+            @ApiResponse(responseCode = "422", description = "Invalid page size"),
             @ApiResponse(responseCode = "500", description = "Internal server error")
     })
-    public ResponseEntity<List<UserDto>> findAll() {
-        var users = service.findAll();
+    public ResponseEntity<List<UserDto>> findAll(@RequestParam(required = false) Long after, @RequestParam(required = false) Integer size) {
+        int pageSize = pagination.size(size);
+        var users = service.findPage(after, pageSize);
         var usersDto = users.stream().map(UserDto::new).toList();
-        return ResponseEntity.ok(usersDto);
+        return pagination.page(usersDto, pageSize, UserDto::id);
+    }
+
+    @GetMapping(value = "/stream", produces = NdjsonStreaming.APPLICATION_NDJSON_VALUE)
+    @Operation(summary = "Stream all users", description = "Stream every registered user as newline-delimited JSON")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Operation successful"),
+            @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    public ResponseEntity<StreamingResponseBody> streamAll() {
+        return ndjsonStreaming.stream(service::streamAll, UserDto::new);
     }
 
     @Operation(summary = "Get user by id", description = "Retrieve the user with specified id", security = @SecurityRequirement(name = "bearerAuth"))
@@ -43,14 +65,24 @@ public record UserController(UserService service, PasswordEncoder passwordEncode
             @ApiResponse(responseCode = "500", description = "Internal server error")
     })
     @GetMapping("/{id}")
-    public ResponseEntity<UserDto> findById(@PathVariable Long id, @RequestHeader("Authorization") String authorizationHeader) {
-        var user = service.findById(id);
-        String email = tokenService.validadeToken(authorizationHeader.replace("Bearer ", ""));
-        if (email != null) {
-            String emailToVerify = service.findByEmail(email).getEmail();
-            if (user.getEmail().equals(emailToVerify))
-                return ResponseEntity.ok(new UserDto(user));
-        }
+    public ResponseEntity<UserDto> findById(@PathVariable Long id, @AuthenticationPrincipal AuthenticatedUser principal) {
+        if (Objects.equals(principal.id(), id))
+            return ResponseEntity.ok(new UserDto(service.findById(id)));
+
+        return ResponseEntity.badRequest().build();
+    }
+
+    @Operation(summary = "Get user balance", description = "Retrieve the balance of the user with specified id, as recorded in the ledger", security = @SecurityRequirement(name = "bearerAuth"))
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Operation successful"),
+            @ApiResponse(responseCode = "403", description = "Unauthorized"),
+            @ApiResponse(responseCode = "404", description = "Not found user with specified id"),
+            @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    @GetMapping("/{id}/balance")
+    public ResponseEntity<BalanceDto> findBalance(@PathVariable Long id, @AuthenticationPrincipal AuthenticatedUser principal) {
+        if (Objects.equals(principal.id(), id))
+            return ResponseEntity.ok(new BalanceDto(id, ledgerService.balanceOf(id)));
 
         return ResponseEntity.badRequest().build();
     }
@@ -60,45 +92,46 @@ public record UserController(UserService service, PasswordEncoder passwordEncode
             @ApiResponse(responseCode = "201", description = "Created successful"),
             @ApiResponse(responseCode = "400", description = "Error while creating user"),
             @ApiResponse(responseCode = "422", description = "Error while creating user"),
+            @ApiResponse(responseCode = "429", description = "Too many password operations in progress"),
             @ApiResponse(responseCode = "500", description = "Internal server error")
     })
     @PostMapping("/register")
-    public ResponseEntity<LoginResponseDto> register(@RequestBody UserDto userDto) {
-        var user = service.findByEmailOptional(userDto.email());
-
-        if (user.isEmpty()) {
+    public CompletableFuture<ResponseEntity<LoginResponseDto>> register(@RequestBody UserDto userDto) {
+        // The request is only bound to this thread, so the location is prepared before leaving it.
+        var location = ServletUriComponentsBuilder.fromCurrentRequest().path("/{id}");
+        // Only the hash runs on the password pool; the insert runs once it's done, on the application executor.
+        return passwordHasher.encode(userDto.password()).thenApply(password -> {
             User newUser = new User();
             newUser.setUserType(userDto.userType());
             newUser.setDocument(userDto.document());
             newUser.setName(userDto.name());
             newUser.setBalance(userDto.balance());
             newUser.setEmail(userDto.email());
-            newUser.setPassword(passwordEncoder().encode(userDto.password()));
+            newUser.setPassword(password);
             var returnedUser = service.create(newUser);
-            URI location = ServletUriComponentsBuilder.fromCurrentRequest()
-                    .path("/{id}")
-                    .buildAndExpand(returnedUser.getId())
-                    .toUri();
-            return ResponseEntity.created(location).body(new LoginResponseDto(this.tokenService.generateToken(newUser)));
-        }
-
-        return ResponseEntity.badRequest().build();
+            URI uri = location.buildAndExpand(returnedUser.getId()).toUri();
+            return ResponseEntity.created(uri).body(new LoginResponseDto(this.tokenService.generateToken(newUser)));
+        });
     }
 
     @Operation(summary = "Authenticate user", description = "Authenticate the user using token")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Authenticated"),
             @ApiResponse(responseCode = "400", description = "Invalid credentials"),
+            @ApiResponse(responseCode = "429", description = "Too many password operations in progress"),
             @ApiResponse(responseCode = "500", description = "Internal server error")
     })
     @PostMapping("/login")
-    public ResponseEntity<LoginResponseDto> login(@RequestBody UserDto userDto) {
-        var user = service.findByEmail(userDto.email());
-        if (passwordEncoder.matches(userDto.password(), user.getPassword())) {
-            return ResponseEntity.ok(new LoginResponseDto(this.tokenService.generateToken(user)));
-        }
+    public CompletableFuture<ResponseEntity<LoginResponseDto>> login(@RequestBody UserDto userDto) {
+        var user = service.findCredentials(userDto.email()).orElseThrow(NotFoundException::new);
+        return passwordHasher.matches(userDto.password(), user.getPassword()).thenApply(matches -> {
+            if (!matches)
+                return ResponseEntity.badRequest().<LoginResponseDto>build();
 
-        return ResponseEntity.badRequest().build();
+            passwordHasher.rehashIfNeeded(userDto.password(), user.getPassword(),
+                    password -> service.updatePassword(user.getId(), user.getPassword(), password));
+            return ResponseEntity.ok(new LoginResponseDto(this.tokenService.generateToken(user)));
+        });
     }
 
     @Operation(summary = "Update user", description = "Update the user data", security = @SecurityRequirement(name = "bearerAuth"))
@@ -109,10 +142,8 @@ public record UserController(UserService service, PasswordEncoder passwordEncode
             @ApiResponse(responseCode = "500", description = "Internal server error")
     })
     @PutMapping("/{id}")
-    public ResponseEntity<UserDto> update(@PathVariable Long id, @RequestBody UserDto userDto, @RequestHeader("Authorization") String authorizationHeader) {
-        String token = authorizationHeader.replace("Bearer ", "");
-        var user = service.findByEmail(tokenService.validadeToken(token));
-        if (!Objects.equals(user.getId(), id) || !Objects.equals(user.getId(), userDto.id()))
+    public ResponseEntity<UserDto> update(@PathVariable Long id, @RequestBody UserDto userDto, @AuthenticationPrincipal AuthenticatedUser principal) {
+        if (!Objects.equals(principal.id(), id) || !Objects.equals(principal.id(), userDto.id()))
             return ResponseEntity.badRequest().build();
         return ResponseEntity.ok(new UserDto(service.update(id, userDto.toModel())));
     }
@@ -125,9 +156,8 @@ public record UserController(UserService service, PasswordEncoder passwordEncode
             @ApiResponse(responseCode = "500", description = "Internal server error")
     })
     @DeleteMapping("/{id}")
-    public ResponseEntity<Void> delete(@PathVariable Long id, @RequestHeader("Authorization") String authorizationHeader) {
-        var user = service.findByEmail(tokenService.validadeToken(authorizationHeader.replace("Bearer ", "")));
-        if (user.getId().equals(id)) {
+    public ResponseEntity<Void> delete(@PathVariable Long id, @AuthenticationPrincipal AuthenticatedUser principal) {
+        if (principal.id().equals(id)) {
             service.delete(id);
             return ResponseEntity.noContent().build();
         }
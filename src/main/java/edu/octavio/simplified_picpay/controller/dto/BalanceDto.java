@@ -0,0 +1,6 @@
+package edu.octavio.simplified_picpay.controller.dto;
+
+import java.math.BigDecimal;
+
+public record BalanceDto(Long userId, BigDecimal balance) {
+}
@@ -0,0 +1,18 @@
+package edu.octavio.simplified_picpay.controller.dto;
+
+import edu.octavio.simplified_picpay.service.batch.BatchTransferItem;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+public record BatchTransferDtoIn(Long payerId, List<Item> transfers) {
+
+    public List<BatchTransferItem> toItems() {
+        return transfers == null ? List.of() : transfers.stream()
+                .map(item -> item == null ? null : new BatchTransferItem(item.payeeId(), item.transactionValue()))
+                .toList();
+    }
+
+    public record Item(Long payeeId, BigDecimal transactionValue) {
+    }
+}
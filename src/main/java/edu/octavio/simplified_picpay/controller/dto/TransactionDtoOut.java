@@ -1,22 +1,33 @@
 package edu.octavio.simplified_picpay.controller.dto;
 
 import edu.octavio.simplified_picpay.domain.model.Transaction;
-import edu.octavio.simplified_picpay.domain.model.User;
-import org.springframework.beans.factory.annotation.Autowired;
+import edu.octavio.simplified_picpay.domain.repository.projection.TransactionView;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
-public record TransactionDtoOut(Long id, BigDecimal transactionValue, User payer, User payee, LocalDateTime createdAt) {
-    @Autowired
+public record TransactionDtoOut(Long id, BigDecimal transactionValue, Participant payer, Participant payee, LocalDateTime createdAt) {
+
+    public TransactionDtoOut(TransactionView view) {
+        this(
+                view.id(),
+                view.transactionValue(),
+                new Participant(view.payerId(), view.payerName()),
+                new Participant(view.payeeId(), view.payeeName()),
+                view.createdAt()
+        );
+    }
 
     public TransactionDtoOut(Transaction model) {
         this(
                 model.getId(),
                 model.getTransactionValue(),
-                model.getPayer(),
-                model.getPayee(),
+                new Participant(model.getPayer().getId(), model.getPayer().getName()),
+                new Participant(model.getPayee().getId(), model.getPayee().getName()),
                 model.getCreatedAt()
         );
     }
+
+    public record Participant(Long id, String name) {
+    }
 }
@@ -21,7 +21,7 @@ public record UserDto(
                 model.getDocument(),
                 model.getEmail(),
                 model.getPassword(),
-                model.getBalance(),
+                model.getTotalBalance(),
                 model.getUserType()
         );
     }
@@ -1,9 +1,16 @@
 package edu.octavio.simplified_picpay.controller.exception;
 
+import edu.octavio.simplified_picpay.infra.metrics.PaymentMetrics;
+import edu.octavio.simplified_picpay.service.batch.BatchItemFailure;
+import edu.octavio.simplified_picpay.service.exception.AuthorizerUnavailableException;
+import edu.octavio.simplified_picpay.service.exception.BatchTransferException;
 import edu.octavio.simplified_picpay.service.exception.BusinessException;
 import edu.octavio.simplified_picpay.service.exception.NotFoundException;
+import edu.octavio.simplified_picpay.service.exception.QueueFullException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.http.converter.HttpMessageNotReadableException;
@@ -11,20 +18,56 @@ import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
 import org.springframework.web.servlet.resource.NoResourceFoundException;
 
+import java.time.Duration;
+import java.util.List;
+
 @RestControllerAdvice
 public class GlobalExceptionHandler {
     private static final Logger LOGGER = LoggerFactory.getLogger(GlobalExceptionHandler.class);
 
+    private final PaymentMetrics metrics;
+
+    public GlobalExceptionHandler(PaymentMetrics metrics) {
+        this.metrics = metrics;
+    }
+
     @ExceptionHandler(BusinessException.class)
     public ResponseEntity<String> handleBusinessException(BusinessException e) {
+        metrics.countBusinessError(e);
         return new ResponseEntity<>(e.getMessage(), HttpStatus.UNPROCESSABLE_ENTITY);
     }
 
+    @ExceptionHandler(BatchTransferException.class)
+    public ResponseEntity<List<BatchItemFailure>> handleBatchTransferException(BatchTransferException e) {
+        metrics.countBusinessError(e);
+        return new ResponseEntity<>(e.getFailures(), HttpStatus.UNPROCESSABLE_ENTITY);
+    }
+
     @ExceptionHandler(NotFoundException.class)
-    public ResponseEntity<String> handleNotFoundException() {
+    public ResponseEntity<String> handleNotFoundException(NotFoundException e) {
+        metrics.countBusinessError(e.getMessage());
         return new ResponseEntity<>("Resource ID not found.", HttpStatus.NOT_FOUND);
     }
 
+    @ExceptionHandler(ConcurrencyFailureException.class)
+    public ResponseEntity<String> handleConcurrencyFailureException() {
+        return new ResponseEntity<>("The resource was changed by another request, try again.", HttpStatus.CONFLICT);
+    }
+
+    @ExceptionHandler(QueueFullException.class)
+    public ResponseEntity<String> handleQueueFullException(QueueFullException e) {
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(e.getMessage());
+    }
+
+    @ExceptionHandler(AuthorizerUnavailableException.class)
+    public ResponseEntity<String> handleAuthorizerUnavailableException(AuthorizerUnavailableException e) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds(e.getRetryAfter())))
+                .body(e.getMessage());
+    }
+
     @ExceptionHandler(NoResourceFoundException.class)
     public ResponseEntity<String> handleNoResourceFoundException() {
         return new ResponseEntity<>("The page that you accessed does not exist or was moved.", HttpStatus.NOT_FOUND);
@@ -41,4 +84,11 @@ public class GlobalExceptionHandler {
         LOGGER.error(message, e);
         return new ResponseEntity<>(message, HttpStatus.INTERNAL_SERVER_ERROR);
     }
+
+    /**
+     * Retry-After takes whole seconds; rounding down could tell clients to come back before the circuit half-opens.
+     */
+    private static long retryAfterSeconds(Duration retryAfter) {
+        return Math.max(1, (retryAfter.toMillis() + 999) / 1000);
+    }
 }
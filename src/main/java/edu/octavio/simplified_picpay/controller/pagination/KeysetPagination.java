@@ -0,0 +1,48 @@
+package edu.octavio.simplified_picpay.controller.pagination;
+
+import edu.octavio.simplified_picpay.service.exception.BusinessException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Shared handling of the {@code after}/{@code size} keyset parameters.
+ * A page keeps the plain JSON array body; when it is full, a {@code Link: <...>; rel="next"} header
+ * carries the cursor of its last element.
+ */
+@Component
+public class KeysetPagination {
+    private final int defaultSize;
+    private final int maxSize;
+
+    public KeysetPagination(@Value("${api.pagination.default-size:50}") int defaultSize,
+                            @Value("${api.pagination.max-size:500}") int maxSize) {
+        this.defaultSize = defaultSize;
+        this.maxSize = maxSize;
+    }
+
+    public int size(Integer requested) {
+        if (requested == null)
+            return defaultSize;
+        if (requested < 1 || requested > maxSize)
+            throw new BusinessException("Page size must be between 1 and " + maxSize);
+        return requested;
+    }
+
+    public <T> ResponseEntity<List<T>> page(List<T> items, int size, Function<T, Object> cursor) {
+        var response = ResponseEntity.ok();
+        if (items.size() == size) {
+            String next = ServletUriComponentsBuilder.fromCurrentRequest()
+                    .replaceQueryParam("after", cursor.apply(items.get(items.size() - 1)))
+                    .replaceQueryParam("size", size)
+                    .toUriString();
+            response.header(HttpHeaders.LINK, "<" + next + ">; rel=\"next\"");
+        }
+        return response.body(items);
+    }
+}
@@ -0,0 +1,31 @@
+package edu.octavio.simplified_picpay.domain.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.math.BigDecimal;
+
+/**
+ * Balance of a user made of every ledger entry up to {@code lastEntryId}. The current balance is the snapshot
+ * plus the few entries written after it.
+ */
+@Entity
+@Table(name = "tb_balance_snapshots")
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+public class BalanceSnapshot {
+    @Id
+    @Column(name = "user_id")
+    private Long userId;
+
+    @Column(scale = 2, precision = 13, nullable = false)
+    private BigDecimal balance;
+
+    @Column(name = "last_entry_id", nullable = false)
+    private Long lastEntryId;
+}
@@ -0,0 +1,36 @@
+package edu.octavio.simplified_picpay.domain.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.math.BigDecimal;
+
+/**
+ * Part of a merchant's balance. Credits to a striped merchant land on one of its stripes instead of the user
+ * row, so concurrent payers lock different rows. The merchant's balance is its row plus every stripe.
+ */
+@Entity
+@Table(name = "tb_balance_stripes", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_balance_stripes_user_id_stripe", columnNames = {"user_id", "stripe"})
+})
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+public class BalanceStripe {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Column(nullable = false)
+    private Integer stripe;
+
+    @Column(scale = 2, precision = 13, nullable = false)
+    private BigDecimal balance;
+}
@@ -0,0 +1,50 @@
+package edu.octavio.simplified_picpay.domain.model;
+
+import edu.octavio.simplified_picpay.domain.model.enums.LedgerEntryType;
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Append-only movement of a user's balance. A transaction writes a DEBIT and a CREDIT that sum to zero,
+ * so the entries of a user always add up to their balance.
+ */
+@Entity
+@Table(name = "tb_ledger_entries", indexes = {
+        @Index(name = "idx_ledger_entries_user_id", columnList = "user_id, id"),
+        @Index(name = "idx_ledger_entries_created_at", columnList = "created_at")
+})
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+public class LedgerEntry {
+    // Stays on IDENTITY: BalanceSnapshotJob relies on ids being handed out close to insert order, which a
+    // pooled sequence, with every node holding its own block of ids, doesn't give.
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    private User user;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    private Transaction transaction;
+
+    /** Signed: negative for money leaving the account. */
+    @Column(scale = 2, precision = 13, nullable = false)
+    private BigDecimal amount;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private LedgerEntryType type;
+
+    @CreationTimestamp
+    private LocalDateTime createdAt;
+}
@@ -0,0 +1,52 @@
+package edu.octavio.simplified_picpay.domain.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Notification of a completed transfer, written in the same transaction as the transfer and deleted once the
+ * payee was notified.
+ */
+@Entity
+@Table(name = "tb_outbox", indexes = {@Index(name = "idx_outbox_next_attempt_at", columnList = "next_attempt_at")})
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+public class OutboxMessage {
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "tb_outbox_seq")
+    @SequenceGenerator(name = "tb_outbox_seq", sequenceName = "tb_outbox_seq", allocationSize = 50)
+    private Long id;
+
+    @Column(name = "transaction_id", nullable = false)
+    private Long transactionId;
+
+    @Column(name = "payer_id", nullable = false)
+    private Long payerId;
+
+    @Column(name = "payee_id", nullable = false)
+    private Long payeeId;
+
+    @Column(name = "transaction_value", nullable = false)
+    private BigDecimal transactionValue;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(nullable = false)
+    private Integer attempts;
+
+    /** When the message may be claimed next. Null once delivery was given up. */
+    @Column(name = "next_attempt_at")
+    private LocalDateTime nextAttemptAt;
+
+    @Column(name = "last_error", length = 1000)
+    private String lastError;
+}
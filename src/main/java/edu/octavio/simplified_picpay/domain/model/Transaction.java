@@ -11,14 +11,23 @@ import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "tb_transactions")
+@Table(name = "tb_transactions", indexes = {
+        @Index(name = "idx_transactions_payer_created_at", columnList = "payer_id, created_at, id"),
+        @Index(name = "idx_transactions_payee_created_at", columnList = "payee_id, created_at, id")
+}, uniqueConstraints = {
+        @UniqueConstraint(name = "uk_transactions_payer_idempotency_key", columnNames = {"payer_id", "idempotency_key"})
+})
 @Getter
 @Setter
 @AllArgsConstructor
 @NoArgsConstructor
 public class Transaction {
+    public static final int IDEMPOTENCY_KEY_MAX_LENGTH = 255;
+
+    // A sequence, unlike IDENTITY, hands out ids before the insert, so Hibernate can batch the inserts.
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "tb_transactions_seq")
+    @SequenceGenerator(name = "tb_transactions_seq", sequenceName = "tb_transactions_seq", allocationSize = 50)
     private Long id;
     @Column(name = "transaction_value")
     private BigDecimal transactionValue;
@@ -31,4 +40,7 @@ public class Transaction {
 
     @CreationTimestamp
     private LocalDateTime createdAt;
+
+    @Column(name = "idempotency_key", length = IDEMPOTENCY_KEY_MAX_LENGTH)
+    private String idempotencyKey;
 }
@@ -6,18 +6,31 @@ import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.Formula;
+import org.hibernate.annotations.NaturalId;
+import org.hibernate.annotations.NaturalIdCache;
 
 import java.math.BigDecimal;
 
+/**
+ * Kept in the second-level cache, by id and by email. Balance updates bypass the entity, so whatever updates a balance
+ * has to evict the user through {@link edu.octavio.simplified_picpay.domain.repository.CachedUserRepository#evict}.
+ */
 @Entity
-@Table(name = "tb_users", indexes = {@Index(name = "idx_email", columnList = "email")})
+@Table(name = "tb_users")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "users")
+@NaturalIdCache(region = "users-by-email")
 @Getter
 @Setter
 @AllArgsConstructor
 @NoArgsConstructor
 public class User {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "tb_users_seq")
+    @SequenceGenerator(name = "tb_users_seq", sequenceName = "tb_users_seq", allocationSize = 50)
     private Long id;
 
     private String name;
@@ -25,6 +38,7 @@ public class User {
     @Column(unique = true)
     private String document;
 
+    @NaturalId(mutable = true)
     @Column(unique = true)
     private String email;
 
@@ -33,9 +47,28 @@ public class User {
     @Column(scale = 2, precision = 13)
     private BigDecimal balance;
 
+    /**
+     * Sum of the user's balance stripes, zero unless they're a striped merchant. Read-only: credits update the
+     * stripes directly.
+     */
+    @Formula("(select coalesce(sum(s.balance), 0) from tb_balance_stripes s where s.user_id = id)")
+    private BigDecimal stripedBalance;
+
     @Enumerated(EnumType.STRING)
     private UserType userType;
 
+    @Version
+    private Long version;
+
+    /**
+     * The balance the user actually has: their own row plus any stripes.
+     */
+    public BigDecimal getTotalBalance() {
+        if (balance == null || stripedBalance == null)
+            return balance;
+        return balance.add(stripedBalance);
+    }
+
     @Override
     public String toString() {
         return "User{" +
@@ -44,7 +77,7 @@ public class User {
                 ", document='" + document + '\'' +
                 ", email='" + email + '\'' +
                 ", password='" + password + '\'' +
-                ", balance=" + balance +
+                ", balance=" + getTotalBalance() +
                 ", userType=" + userType +
                 '}';
     }
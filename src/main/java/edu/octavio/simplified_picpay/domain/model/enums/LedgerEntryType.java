@@ -0,0 +1,12 @@
+package edu.octavio.simplified_picpay.domain.model.enums;
+
+public enum LedgerEntryType {
+    /** Money leaving the payer of a transaction. */
+    DEBIT,
+    /** Money reaching the payee of a transaction. */
+    CREDIT,
+    /** Balance a user was created with. */
+    OPENING,
+    /** Balance set directly on a user, outside of a transaction. */
+    ADJUSTMENT
+}
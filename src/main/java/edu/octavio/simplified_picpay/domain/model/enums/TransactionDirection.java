@@ -0,0 +1,7 @@
+package edu.octavio.simplified_picpay.domain.model.enums;
+
+public enum TransactionDirection {
+    IN,
+    OUT,
+    ALL
+}
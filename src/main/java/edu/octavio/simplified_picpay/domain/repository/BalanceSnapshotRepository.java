@@ -0,0 +1,24 @@
+package edu.octavio.simplified_picpay.domain.repository;
+
+import edu.octavio.simplified_picpay.domain.model.BalanceSnapshot;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+
+import java.math.BigDecimal;
+
+public interface BalanceSnapshotRepository extends JpaRepository<BalanceSnapshot, Long> {
+
+    @Query("select max(s.lastEntryId) from BalanceSnapshot s")
+    Long findLastEntryId();
+
+    /**
+     * Adds the entries in (afterId, upToId] to a snapshot that doesn't include them yet.
+     *
+     * @return the number of updated rows, 0 when there's no snapshot or it's already past {@code afterId}
+     */
+    @Modifying
+    @Query("update BalanceSnapshot s set s.balance = s.balance + :delta, s.lastEntryId = :upToId " +
+            "where s.userId = :userId and s.lastEntryId <= :afterId")
+    int advance(Long userId, BigDecimal delta, Long afterId, Long upToId);
+}
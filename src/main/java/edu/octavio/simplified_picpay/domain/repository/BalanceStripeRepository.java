@@ -0,0 +1,32 @@
+package edu.octavio.simplified_picpay.domain.repository;
+
+import edu.octavio.simplified_picpay.domain.model.BalanceStripe;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+public interface BalanceStripeRepository extends JpaRepository<BalanceStripe, Long> {
+    int countByUserId(Long userId);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select s from BalanceStripe s where s.userId = :userId order by s.stripe")
+    List<BalanceStripe> findForUpdate(Long userId);
+
+    /**
+     * Adds {@code value} to one stripe of the user.
+     *
+     * @return the number of updated rows, 0 when the stripe doesn't exist
+     */
+    @Modifying
+    @Query("update BalanceStripe s set s.balance = s.balance + :value where s.userId = :userId and s.stripe = :stripe")
+    int credit(Long userId, int stripe, BigDecimal value);
+
+    @Modifying
+    @Query("delete from BalanceStripe s where s.userId = :userId")
+    int deleteByUserId(Long userId);
+}
@@ -0,0 +1,51 @@
+package edu.octavio.simplified_picpay.domain.repository;
+
+import edu.octavio.simplified_picpay.domain.model.User;
+
+import java.math.BigDecimal;
+import java.util.Optional;
+
+/**
+ * The {@link UserRepository} operations that have to know about the second-level cache of users.
+ */
+public interface CachedUserRepository {
+
+    /**
+     * Looks the user up by its natural id, from the cache when it's there.
+     */
+    Optional<User> findByEmail(String email);
+
+    /**
+     * Looks the user up by email in the database, never in the cache, which is local to each node: a password
+     * change or a deletion on another node shows up right away.
+     */
+    Optional<User> findCredentials(String email);
+
+    /**
+     * Subtracts {@code value} from the balance of a non-merchant user, only if the balance covers it.
+     *
+     * @return the number of updated rows, 0 when the user doesn't exist, is a merchant or lacks funds
+     */
+    int debit(Long id, BigDecimal value);
+
+    /**
+     * Subtracts {@code value} from the balance of any user, merchants included, only if the balance covers it.
+     * A merchant's stripes have to be collapsed first, so the user row holds its whole balance.
+     *
+     * @return the number of updated rows, 0 when the user doesn't exist or lacks funds
+     */
+    int payOut(Long id, BigDecimal value);
+
+    /**
+     * Adds {@code value} to the balance of the user.
+     *
+     * @return the number of updated rows, 0 when the user doesn't exist
+     */
+    int credit(Long id, BigDecimal value);
+
+    /**
+     * Drops the cached user now and again once the current transaction commits, so a read racing with the
+     * transaction can't put the old state back for good.
+     */
+    void evict(Long id);
+}
@@ -0,0 +1,93 @@
+package edu.octavio.simplified_picpay.domain.repository;
+
+import edu.octavio.simplified_picpay.domain.model.User;
+import edu.octavio.simplified_picpay.infra.database.ReplicaRoutingDataSource;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.CacheMode;
+import org.hibernate.Session;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.util.Optional;
+
+/**
+ * Balance updates are native statements synchronized on {@link #BALANCE_SPACE}, a query space no entity maps. An
+ * update on the User entity would make Hibernate drop every cached user, on every transfer; this way only the
+ * updated user is evicted.
+ */
+class CachedUserRepositoryImpl implements CachedUserRepository {
+    static final String BALANCE_SPACE = "tb_users.balance";
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    @Transactional(readOnly = true)
+    public Optional<User> findByEmail(String email) {
+        return entityManager.unwrap(Session.class).bySimpleNaturalId(User.class).loadOptional(email);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Optional<User> findCredentials(String email) {
+        // A login can come right after registering, with nobody authenticated yet to keep the read on the primary.
+        // IGNORE neither reads the user from the cache when resolving the row nor puts it there.
+        return ReplicaRoutingDataSource.onPrimary(() -> entityManager.createQuery("select u from User u where u.email = :email", User.class)
+                .setParameter("email", email)
+                .setHint(HibernateHints.HINT_CACHE_MODE, CacheMode.IGNORE)
+                .getResultStream()
+                .findFirst());
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.MANDATORY)
+    public int debit(Long id, BigDecimal value) {
+        return updateBalance(id, value, "update tb_users set balance = balance - :value, version = version + 1 " +
+                "where id = :id and balance >= :value and user_type <> 'MERCHANT'");
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.MANDATORY)
+    public int payOut(Long id, BigDecimal value) {
+        return updateBalance(id, value, "update tb_users set balance = balance - :value, version = version + 1 " +
+                "where id = :id and balance >= :value");
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.MANDATORY)
+    public int credit(Long id, BigDecimal value) {
+        return updateBalance(id, value, "update tb_users set balance = balance + :value, version = version + 1 where id = :id");
+    }
+
+    @Override
+    public void evict(Long id) {
+        entityManager.getEntityManagerFactory().getCache().evict(User.class, id);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    entityManager.getEntityManagerFactory().getCache().evict(User.class, id);
+                }
+            });
+        }
+    }
+
+    private int updateBalance(Long id, BigDecimal value, String sql) {
+        // Hibernate only flushes before statements touching the spaces of pending changes, and this one touches none.
+        entityManager.flush();
+        int updated = entityManager.createNativeQuery(sql)
+                .setHint(HibernateHints.HINT_NATIVE_SPACES, BALANCE_SPACE)
+                .setParameter("id", id)
+                .setParameter("value", value)
+                .executeUpdate();
+        // Same as @Modifying(clearAutomatically = true): no managed user keeps the balance from before the update.
+        entityManager.clear();
+        evict(id);
+        return updated;
+    }
+}
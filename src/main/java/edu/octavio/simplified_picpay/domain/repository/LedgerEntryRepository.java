@@ -0,0 +1,47 @@
+package edu.octavio.simplified_picpay.domain.repository;
+
+import edu.octavio.simplified_picpay.domain.model.LedgerEntry;
+import edu.octavio.simplified_picpay.domain.repository.projection.BalanceDelta;
+import edu.octavio.simplified_picpay.domain.repository.projection.BalanceMismatch;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface LedgerEntryRepository extends JpaRepository<LedgerEntry, Long> {
+
+    @Query("select max(e.id) from LedgerEntry e where e.createdAt < :before")
+    Long findLastIdBefore(LocalDateTime before);
+
+    /**
+     * @return the sum of the user's entries after {@code afterId}, null when there are none
+     */
+    @Query("select sum(e.amount) from LedgerEntry e where e.user.id = :userId and e.id > :afterId")
+    BigDecimal sumAfter(Long userId, Long afterId);
+
+    @Query("select sum(e.amount) from LedgerEntry e where e.user.id = :userId and e.id <= :upToId")
+    BigDecimal sumUpTo(Long userId, Long upToId);
+
+    @Query("select new edu.octavio.simplified_picpay.domain.repository.projection.BalanceDelta(e.user.id, sum(e.amount)) " +
+            "from LedgerEntry e where e.id > :afterId and e.id <= :upToId group by e.user.id")
+    List<BalanceDelta> sumByUser(Long afterId, Long upToId);
+
+    /**
+     * Compares the balance of the users with ids in [fromId, toId) with the sum of their ledger entries.
+     * Being a single statement, it sees every transfer either fully applied or not at all. The balance of a
+     * striped merchant includes its stripes.
+     */
+    @Query("select new edu.octavio.simplified_picpay.domain.repository.projection.BalanceMismatch(u.id, u.balance + u.stripedBalance, sum(e.amount)) " +
+            "from User u left join LedgerEntry e on e.user = u " +
+            "where u.id >= :fromId and u.id < :toId " +
+            "group by u.id, u.balance " +
+            "having u.balance + u.stripedBalance <> coalesce(sum(e.amount), 0)")
+    List<BalanceMismatch> findMismatches(Long fromId, Long toId);
+
+    @Modifying
+    @Query("delete from LedgerEntry e where e.user.id = :userId")
+    int deleteByUserId(Long userId);
+}
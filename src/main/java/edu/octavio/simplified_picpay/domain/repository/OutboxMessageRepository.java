@@ -0,0 +1,28 @@
+package edu.octavio.simplified_picpay.domain.repository;
+
+import edu.octavio.simplified_picpay.domain.model.OutboxMessage;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface OutboxMessageRepository extends JpaRepository<OutboxMessage, Long> {
+
+    /**
+     * Locks up to {@code limit} messages due at {@code now}. Rows another dispatcher holds are skipped rather than
+     * waited for, so concurrent dispatchers split the backlog instead of queueing on the same rows.
+     */
+    @Query(nativeQuery = true, value = "select * from tb_outbox where next_attempt_at <= :now " +
+            "order by next_attempt_at limit :limit for update skip locked")
+    List<OutboxMessage> findDueForUpdate(LocalDateTime now, int limit);
+
+    @Modifying
+    @Query("update OutboxMessage m set m.attempts = :attempts, m.nextAttemptAt = :nextAttemptAt, m.lastError = :lastError where m.id = :id")
+    int reschedule(Long id, int attempts, LocalDateTime nextAttemptAt, String lastError);
+
+    @Modifying
+    @Query("delete from OutboxMessage m where m.id = :id")
+    int deleteDelivered(Long id);
+}
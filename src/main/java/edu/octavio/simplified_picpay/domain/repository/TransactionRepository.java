@@ -1,7 +1,44 @@
 package edu.octavio.simplified_picpay.domain.repository;
 
 import edu.octavio.simplified_picpay.domain.model.Transaction;
+import edu.octavio.simplified_picpay.domain.repository.projection.TransactionView;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 public interface TransactionRepository extends JpaRepository<Transaction, Long> {
+    String SELECT_VIEW = "select new edu.octavio.simplified_picpay.domain.repository.projection.TransactionView(" +
+            "t.id, t.transactionValue, p.id, p.name, e.id, e.name, t.createdAt) " +
+            "from Transaction t join t.payer p join t.payee e ";
+    String BEFORE_CURSOR = "and t.createdAt >= :from " +
+            "and (t.createdAt < :beforeCreatedAt or (t.createdAt = :beforeCreatedAt and t.id < :beforeId)) " +
+            "order by t.createdAt desc, t.id desc";
+
+    Optional<Transaction> findByPayerIdAndIdempotencyKey(Long payerId, String idempotencyKey);
+
+    @Query(SELECT_VIEW + "where t.id = :id")
+    Optional<TransactionView> findViewById(Long id);
+
+    @Query(SELECT_VIEW + "where t.id > :id order by t.id")
+    List<TransactionView> findViewsAfter(Long id, Pageable page);
+
+    // History pages walk (created_at, id) backwards from a cursor, so each one is a short range scan
+    // of idx_transactions_payer_created_at / idx_transactions_payee_created_at whatever the table size.
+    @Query(SELECT_VIEW + "where p.id = :userId " + BEFORE_CURSOR)
+    List<TransactionView> findOutgoing(Long userId, LocalDateTime from, LocalDateTime beforeCreatedAt, Long beforeId, Pageable page);
+
+    @Query(SELECT_VIEW + "where e.id = :userId " + BEFORE_CURSOR)
+    List<TransactionView> findIncoming(Long userId, LocalDateTime from, LocalDateTime beforeCreatedAt, Long beforeId, Pageable page);
+
+    @Query(SELECT_VIEW + "order by t.id")
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    Stream<TransactionView> streamViews();
 }
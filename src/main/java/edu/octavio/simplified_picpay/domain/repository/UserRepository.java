@@ -1,12 +1,58 @@
 package edu.octavio.simplified_picpay.domain.repository;
 
 import edu.octavio.simplified_picpay.domain.model.User;
+import edu.octavio.simplified_picpay.domain.repository.projection.UserKeys;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 
-import java.util.Optional;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Stream;
 
-public interface UserRepository extends JpaRepository<User, Long> {
+public interface UserRepository extends JpaRepository<User, Long>, CachedUserRepository {
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
     boolean existsByEmail(String email);
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
     boolean existsByDocument(String document);
-    Optional<User> findByEmail(String email);
+
+    List<User> findByIdGreaterThanOrderByIdAsc(Long id, Limit limit);
+
+    @Query("select u from User u order by u.id")
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    Stream<User> streamAll();
+
+    @Query("select new edu.octavio.simplified_picpay.domain.repository.projection.UserKeys(u.email, u.document) from User u")
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    Stream<UserKeys> streamKeys();
+
+    /**
+     * Locks the rows of the given users in ascending id, the order every transfer takes them in, so a transaction
+     * that goes on to update several of them in any order can't deadlock with another one.
+     */
+    @Query(nativeQuery = true, value = "select id from tb_users where id in (:ids) order by id for update")
+    List<Long> lockInIdOrder(Collection<Long> ids);
+
+    @Query("select min(u.id) from User u")
+    Long findMinId();
+
+    @Query("select max(u.id) from User u")
+    Long findMaxId();
+
+    /**
+     * Replaces the password hash, only if it's still {@code previousPassword}, so a password changed meanwhile wins.
+     *
+     * @return the number of updated rows, 0 when the user doesn't exist or the hash changed
+     */
+    @Modifying(clearAutomatically = true)
+    @Query("update User u set u.password = :password, u.version = u.version + 1 where u.id = :id and u.password = :previousPassword")
+    int updatePassword(Long id, String previousPassword, String password);
 }
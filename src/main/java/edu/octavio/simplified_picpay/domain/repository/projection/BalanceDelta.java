@@ -0,0 +1,6 @@
+package edu.octavio.simplified_picpay.domain.repository.projection;
+
+import java.math.BigDecimal;
+
+public record BalanceDelta(Long userId, BigDecimal amount) {
+}
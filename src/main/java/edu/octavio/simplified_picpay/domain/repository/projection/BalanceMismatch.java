@@ -0,0 +1,12 @@
+package edu.octavio.simplified_picpay.domain.repository.projection;
+
+import java.math.BigDecimal;
+
+public record BalanceMismatch(Long userId, BigDecimal balance, BigDecimal ledgerBalance) {
+
+    public BalanceMismatch {
+        // A user without entries has no ledger sum at all.
+        if (ledgerBalance == null)
+            ledgerBalance = BigDecimal.ZERO;
+    }
+}
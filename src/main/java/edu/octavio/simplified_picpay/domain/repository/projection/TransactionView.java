@@ -0,0 +1,18 @@
+package edu.octavio.simplified_picpay.domain.repository.projection;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Read model of a transaction: its own columns plus the id and name of each participant,
+ * selected in one query without loading the {@code User} entities.
+ */
+public record TransactionView(
+        Long id,
+        BigDecimal transactionValue,
+        Long payerId,
+        String payerName,
+        Long payeeId,
+        String payeeName,
+        LocalDateTime createdAt) {
+}
@@ -0,0 +1,7 @@
+package edu.octavio.simplified_picpay.domain.repository.projection;
+
+/**
+ * The unique columns of a user, without loading the entity.
+ */
+public record UserKeys(String email, String document) {
+}
@@ -0,0 +1,33 @@
+package edu.octavio.simplified_picpay.infra.actuator;
+
+import edu.octavio.simplified_picpay.service.uniqueness.UserUniquenessFilter;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * {@code GET /actuator/uniqueness} tells whether the email and document filters are built, {@code POST} rebuilds them
+ * from the database.
+ */
+@Component
+@Endpoint(id = "uniqueness")
+public class UserUniquenessEndpoint {
+    private final UserUniquenessFilter filter;
+
+    public UserUniquenessEndpoint(UserUniquenessFilter filter) {
+        this.filter = filter;
+    }
+
+    @ReadOperation
+    public Map<String, Object> status() {
+        return Map.of("ready", filter.isReady());
+    }
+
+    @WriteOperation
+    public Map<String, Object> rebuild() {
+        return Map.of("rebuilt", filter.rebuild(), "ready", filter.isReady());
+    }
+}
@@ -0,0 +1,127 @@
+package edu.octavio.simplified_picpay.infra.authorization;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Local stand-in for the transfer authorizer, for tests and load tests. Every request waits {@code latency}, then
+ * fails with 500 with probability {@code error-rate}, is denied with 403 with probability {@code deny-rate}, and
+ * is authorized otherwise. The settings can be changed while it runs.
+ * <p>
+ * Enabled with {@code api.authorization.stub.enabled}; point {@code api.authorization.url} at
+ * {@code http://localhost:<port>/authorize} to use it. Port 0 picks a free one, see {@link #uri()}.
+ */
+@Component
+@ConditionalOnProperty(name = "api.authorization.stub.enabled", havingValue = "true")
+public class AuthorizerStub implements AutoCloseable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(AuthorizerStub.class);
+    private static final byte[] AUTHORIZED = "{\"status\":\"success\",\"data\":{\"authorization\":true}}".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] DENIED = "{\"status\":\"fail\",\"data\":{\"authorization\":false}}".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] ERROR = "{\"status\":\"error\"}".getBytes(StandardCharsets.UTF_8);
+
+    private final int port;
+    private volatile Duration latency;
+    private volatile double errorRate;
+    private volatile double denyRate;
+
+    private HttpServer server;
+    private ExecutorService executor;
+
+    public AuthorizerStub(@Value("${api.authorization.stub.port:8090}") int port,
+                          @Value("${api.authorization.stub.latency:PT0S}") Duration latency,
+                          @Value("${api.authorization.stub.error-rate:0}") double errorRate,
+                          @Value("${api.authorization.stub.deny-rate:0}") double denyRate) {
+        this.port = port;
+        this.latency = latency;
+        this.errorRate = errorRate;
+        this.denyRate = denyRate;
+    }
+
+    @PostConstruct
+    public synchronized void start() throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        // Requests sleep through their latency, so each one needs its own thread for latency to stay latency.
+        AtomicInteger count = new AtomicInteger();
+        executor = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "authorizer-stub-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        server.setExecutor(executor);
+        server.createContext("/authorize", this::handle);
+        server.start();
+        LOGGER.info("Authorizer stub listening on {}", uri());
+    }
+
+    @Override
+    @PreDestroy
+    public synchronized void close() {
+        if (server == null)
+            return;
+        server.stop(0);
+        executor.shutdownNow();
+        server = null;
+    }
+
+    public URI uri() {
+        return URI.create("http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort() + "/authorize");
+    }
+
+    public void setLatency(Duration latency) {
+        this.latency = latency;
+    }
+
+    public void setErrorRate(double errorRate) {
+        this.errorRate = errorRate;
+    }
+
+    public void setDenyRate(double denyRate) {
+        this.denyRate = denyRate;
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            exchange.getRequestBody().readAllBytes();
+            Thread.sleep(latency.toMillis());
+
+            double roll = ThreadLocalRandom.current().nextDouble();
+            if (roll < errorRate)
+                respond(exchange, 500, ERROR);
+            else if (roll < errorRate + denyRate)
+                respond(exchange, 403, DENIED);
+            else
+                respond(exchange, 200, AUTHORIZED);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private static void respond(HttpExchange exchange, int status, byte[] body) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream output = exchange.getResponseBody()) {
+            output.write(body);
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package edu.octavio.simplified_picpay.infra.authorization;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import edu.octavio.simplified_picpay.service.authorization.TransferAuthorizer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+
+/**
+ * Asks an HTTP authorizer shaped like the one in the PicPay challenge: {@code GET url?payerId=&payeeId=&value=}
+ * answers 2xx with {@code {"data": {"authorization": true}}} to authorize and 403 to deny. Any other status, or a 2xx
+ * body without a boolean {@code data.authorization}, is a failure. Each request gives up after {@code timeout}, so a hung authorizer doesn't keep a guard thread forever.
+ */
+@Component
+@ConditionalOnProperty(name = "api.authorization.url")
+public class HttpTransferAuthorizer implements TransferAuthorizer {
+    private final ObjectMapper objectMapper;
+    private final URI uri;
+    private final Duration timeout;
+    private final HttpClient client;
+
+    public HttpTransferAuthorizer(ObjectMapper objectMapper,
+                                  @Value("${api.authorization.url}") URI uri,
+                                  @Value("${api.authorization.timeout:PT0.5S}") Duration timeout) {
+        this.objectMapper = objectMapper;
+        this.uri = uri;
+        this.timeout = timeout;
+        this.client = HttpClient.newBuilder()
+                .connectTimeout(timeout)
+                .build();
+    }
+
+    @Override
+    public boolean authorize(Long payerId, Long payeeId, BigDecimal value) {
+        String query = "payerId=" + payerId + (payeeId == null ? "" : "&payeeId=" + payeeId) + "&value=" + value.toPlainString();
+        HttpRequest request = HttpRequest.newBuilder(URI.create(uri + (uri.getRawQuery() == null ? "?" : "&") + query))
+                .timeout(timeout)
+                .header("Accept", "application/json")
+                .GET()
+                .build();
+
+        HttpResponse<byte[]> response;
+        try {
+            response = client.send(request, HttpResponse.BodyHandlers.ofByteArray());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the transfer authorizer", e);
+        }
+
+        if (response.statusCode() == 403)
+            return false;
+        if (response.statusCode() / 100 != 2)
+            throw new IllegalStateException("Transfer authorizer answered " + response.statusCode());
+        JsonNode authorization;
+        try {
+            authorization = objectMapper.readTree(response.body()).path("data").path("authorization");
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        // A success without a clear answer isn't an approval. Failing lets the guard count it against the circuit and
+        // fall back to degraded mode, as for any other broken answer.
+        if (!authorization.isBoolean())
+            throw new IllegalStateException("Transfer authorizer answered " + response.statusCode() + " without data.authorization");
+        return authorization.booleanValue();
+    }
+}
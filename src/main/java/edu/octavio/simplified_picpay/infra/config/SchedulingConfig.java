@@ -0,0 +1,15 @@
+package edu.octavio.simplified_picpay.infra.config;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Runs the background jobs (ledger snapshots and reconciliation, transaction partitions). Disable with {@code api.scheduling.enabled=false},
+ * e.g. on all instances but one.
+ */
+@Configuration
+@EnableScheduling
+@ConditionalOnProperty(name = "api.scheduling.enabled", havingValue = "true", matchIfMissing = true)
+public class SchedulingConfig {
+}
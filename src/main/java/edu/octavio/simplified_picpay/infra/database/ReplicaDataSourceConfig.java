@@ -0,0 +1,88 @@
+package edu.octavio.simplified_picpay.infra.database;
+
+import com.zaxxer.hikari.HikariDataSource;
+import edu.octavio.simplified_picpay.infra.security.AuthenticatedUser;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+
+/**
+ * With {@code api.datasource.replica.url} set, read-only transactions go to that replica through
+ * {@link ReplicaRoutingDataSource}. The primary pool keeps the {@code spring.datasource} settings; the replica pool
+ * uses the same credentials unless {@code api.datasource.replica.username} and {@code password} are set.
+ */
+@Configuration
+@ConditionalOnProperty(name = "api.datasource.replica.url")
+public class ReplicaDataSourceConfig {
+    private static final String POSTGRES_LAG_QUERY = "select coalesce(case when pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() then 0 "
+            + "else extract(epoch from now() - pg_last_xact_replay_timestamp()) end, 0)";
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        dataSource.setPoolName("primary");
+        return dataSource;
+    }
+
+    @Bean
+    public HikariDataSource replicaDataSource(DataSourceProperties properties,
+                                              @Value("${api.datasource.replica.url}") String url,
+                                              @Value("${api.datasource.replica.username:${spring.datasource.username:}}") String username,
+                                              @Value("${api.datasource.replica.password:${spring.datasource.password:}}") String password,
+                                              @Value("${api.datasource.replica.maximum-pool-size:10}") int maximumPoolSize) {
+        HikariDataSource dataSource = DataSourceBuilder.create()
+                .type(HikariDataSource.class)
+                .driverClassName(properties.determineDriverClassName())
+                .url(url)
+                .username(username)
+                .password(password)
+                .build();
+        dataSource.setPoolName("replica");
+        dataSource.setMaximumPoolSize(maximumPoolSize);
+        dataSource.setReadOnly(true);
+        return dataSource;
+    }
+
+    @Bean
+    public ReplicaLagMonitor replicaLagMonitor(@Qualifier("replicaDataSource") DataSource replica,
+                                               @Value("${api.datasource.replica.lag-query:" + POSTGRES_LAG_QUERY + "}") String lagQuery,
+                                               @Value("${api.datasource.replica.max-lag:PT5S}") Duration maxLag,
+                                               @Value("${api.datasource.replica.lag-check-interval:PT1S}") Duration checkInterval) {
+        return new ReplicaLagMonitor(replica, lagQuery, maxLag, checkInterval);
+    }
+
+    @Bean
+    public ReplicaRoutingDataSource replicaRoutingDataSource(@Qualifier("primaryDataSource") DataSource primary,
+                                                             @Qualifier("replicaDataSource") DataSource replica,
+                                                             ReplicaLagMonitor lagMonitor,
+                                                             @Value("${api.datasource.replica.max-lag:PT5S}") Duration maxLag,
+                                                             @Value("${api.datasource.replica.lag-check-interval:PT1S}") Duration checkInterval) {
+        // A lag just under max-lag may only be noticed a check later, so writers stay on the primary that much longer.
+        return new ReplicaRoutingDataSource(primary, replica, lagMonitor, ReplicaDataSourceConfig::authenticatedCaller,
+                maxLag.plus(checkInterval));
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(ReplicaRoutingDataSource routingDataSource) {
+        return new LazyConnectionDataSourceProxy(routingDataSource);
+    }
+
+    private static Object authenticatedCaller() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        return authentication != null && authentication.getPrincipal() instanceof AuthenticatedUser user ? user.id() : null;
+    }
+}
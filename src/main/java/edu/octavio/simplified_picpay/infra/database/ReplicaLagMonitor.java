@@ -0,0 +1,88 @@
+package edu.octavio.simplified_picpay.infra.database;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures how far the replica is behind the primary every {@code checkInterval} with {@code lagQuery}, which must
+ * return the lag in seconds. The replica is usable while the last check succeeded within {@code maxLag}; until the
+ * first check, and whenever one fails, it isn't.
+ * <p>
+ * Every instance routes its own reads, so this runs on its own thread rather than as a scheduled job, which may be
+ * disabled on most instances.
+ */
+public class ReplicaLagMonitor implements AutoCloseable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ReplicaLagMonitor.class);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final String lagQuery;
+    private final double maxLagSeconds;
+    private final Duration checkInterval;
+
+    private volatile boolean usable;
+    private volatile double lagSeconds = Double.NaN;
+    private ScheduledExecutorService executor;
+
+    public ReplicaLagMonitor(DataSource replica, String lagQuery, Duration maxLag, Duration checkInterval) {
+        this.jdbcTemplate = new JdbcTemplate(replica);
+        this.jdbcTemplate.setQueryTimeout((int) Math.max(1, checkInterval.toSeconds()));
+        this.lagQuery = lagQuery;
+        this.maxLagSeconds = maxLag.toNanos() / 1e9;
+        this.checkInterval = checkInterval;
+    }
+
+    @PostConstruct
+    public synchronized void start() {
+        executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "replica-lag-monitor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleWithFixedDelay(this::check, 0, checkInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    @PreDestroy
+    public synchronized void close() {
+        if (executor != null)
+            executor.shutdownNow();
+    }
+
+    public void check() {
+        boolean wasUsable = usable;
+        try {
+            Double lag = jdbcTemplate.queryForObject(lagQuery, Double.class);
+            lagSeconds = lag == null ? Double.NaN : lag;
+            usable = lag != null && lag <= maxLagSeconds;
+            if (wasUsable && !usable)
+                LOGGER.warn("Replica is {} seconds behind, reading from the primary", lagSeconds);
+        } catch (RuntimeException e) {
+            lagSeconds = Double.NaN;
+            usable = false;
+            if (wasUsable)
+                LOGGER.warn("Replica lag check failed, reading from the primary: {}", e.toString());
+        }
+        if (!wasUsable && usable)
+            LOGGER.info("Replica is {} seconds behind, reading from it", lagSeconds);
+    }
+
+    public boolean isReplicaUsable() {
+        return usable;
+    }
+
+    /**
+     * @return the lag seen by the last check, in seconds, or NaN when it failed
+     */
+    public double lagSeconds() {
+        return lagSeconds;
+    }
+}
@@ -0,0 +1,111 @@
+package edu.octavio.simplified_picpay.infra.database;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Sends read-only transactions to the replica and everything else to the primary. It decides when a connection is
+ * taken, so it has to sit behind a {@link org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy}: the
+ * transaction manager opens the connection before the transaction is marked read-only.
+ * <p>
+ * Reads still go to the primary while {@link ReplicaLagMonitor} says the replica is too far behind, and for
+ * {@code readYourWritesWindow} after the same caller (as told by {@code caller}, e.g. the authenticated user)
+ * committed a write, so a transfer is never missing from the history its payer reads right after it. Reads with no
+ * caller to recognise that still decide a write, like checking the credentials of a user who registered a moment
+ * ago, run through {@link #onPrimary(Supplier)}.
+ */
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource {
+    enum Target {PRIMARY, REPLICA}
+
+    private static final ThreadLocal<Boolean> PRIMARY_ONLY = new ThreadLocal<>();
+
+    private final ReplicaLagMonitor lagMonitor;
+    private final Supplier<Object> caller;
+    private final Cache<Object, Boolean> recentWriters;
+
+    private final LongAdder replicaReads = new LongAdder();
+    private final LongAdder primaryReads = new LongAdder();
+
+    public ReplicaRoutingDataSource(DataSource primary, DataSource replica, ReplicaLagMonitor lagMonitor,
+                                    Supplier<Object> caller, Duration readYourWritesWindow) {
+        this.lagMonitor = lagMonitor;
+        this.caller = caller;
+        this.recentWriters = Caffeine.newBuilder()
+                .expireAfterWrite(readYourWritesWindow)
+                .build();
+        setTargetDataSources(Map.of(Target.PRIMARY, primary, Target.REPLICA, replica));
+        setDefaultTargetDataSource(primary);
+        setLenientFallback(false);
+        afterPropertiesSet();
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            rememberWriter();
+            return Target.PRIMARY;
+        }
+
+        Object key = caller.get();
+        if (PRIMARY_ONLY.get() != null || (key != null && recentWriters.getIfPresent(key) != null) || !lagMonitor.isReplicaUsable()) {
+            primaryReads.increment();
+            return Target.PRIMARY;
+        }
+        replicaReads.increment();
+        return Target.REPLICA;
+    }
+
+    private void rememberWriter() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive())
+            return;
+        Object key = caller.get();
+        if (key == null)
+            return;
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                recentWriters.put(key, Boolean.TRUE);
+            }
+        });
+    }
+
+    /**
+     * Runs {@code work} with every connection it takes coming from the primary, read-only transactions included. The
+     * connection is chosen on the transaction's first statement, so that statement has to run inside {@code work}.
+     */
+    public static <T> T onPrimary(Supplier<T> work) {
+        if (PRIMARY_ONLY.get() != null)
+            return work.get();
+        PRIMARY_ONLY.set(Boolean.TRUE);
+        try {
+            return work.get();
+        } finally {
+            PRIMARY_ONLY.remove();
+        }
+    }
+
+    public ReplicaLagMonitor lagMonitor() {
+        return lagMonitor;
+    }
+
+    public long replicaReads() {
+        return replicaReads.sum();
+    }
+
+    /**
+     * @return read-only transactions sent to the primary because the replica lagged, the caller had just written or
+     * the read ran through {@link #onPrimary(Supplier)}
+     */
+    public long primaryReads() {
+        return primaryReads.sum();
+    }
+}
@@ -0,0 +1,51 @@
+package edu.octavio.simplified_picpay.infra.database;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+
+/**
+ * Creates the monthly partitions of tb_transactions ahead of time, through the {@code create_transactions_partition}
+ * function of the Postgres migrations. Runs at startup and then daily, and creating a partition that already exists
+ * does nothing, so every instance may run it. A month that fails is logged and retried on the next run; inserts of
+ * that month land in the default partition meanwhile, so startup doesn't wait on it.
+ * <p>
+ * Only Postgres partitions tb_transactions, so this is enabled with {@code api.transaction.partitions.enabled}.
+ */
+@Component
+@ConditionalOnProperty(name = "api.transaction.partitions.enabled", havingValue = "true")
+public class TransactionPartitionJob {
+    private static final Logger LOGGER = LoggerFactory.getLogger(TransactionPartitionJob.class);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final int monthsAhead;
+
+    public TransactionPartitionJob(JdbcTemplate jdbcTemplate,
+                                   @Value("${api.transaction.partitions.months-ahead:3}") int monthsAhead) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.monthsAhead = monthsAhead;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(cron = "${api.transaction.partitions.cron:0 0 4 * * *}")
+    public void run() {
+        LocalDate month = LocalDate.now().withDayOfMonth(1);
+        for (int i = 0; i <= monthsAhead; i++) {
+            try {
+                jdbcTemplate.queryForList("select create_transactions_partition(?)", month.plusMonths(i));
+            } catch (DataAccessException e) {
+                LOGGER.error("Could not create the transaction partition of {}", month.plusMonths(i), e);
+            }
+        }
+        LOGGER.debug("Transaction partitions exist up to {}", month.plusMonths(monthsAhead));
+    }
+}
@@ -0,0 +1,88 @@
+package edu.octavio.simplified_picpay.infra.metrics;
+
+import edu.octavio.simplified_picpay.service.exception.BusinessException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Meters of the payment hot path. Timers publish percentile histograms, so latency percentiles can be
+ * aggregated across instances on the Prometheus side.
+ */
+@Component
+public class PaymentMetrics {
+    private final MeterRegistry registry;
+    private final Timer transfers;
+    private final Timer tokenVerifications;
+    private final Timer authentications;
+    private final Timer userLookups;
+    private final Timer passwordChecks;
+    private final AtomicInteger transfersInFlight = new AtomicInteger();
+    private final Map<String, Counter> businessErrors = new ConcurrentHashMap<>();
+
+    public PaymentMetrics(MeterRegistry registry) {
+        this.registry = registry;
+        this.transfers = timer("picpay.transfer", "Time to apply a transfer, including conflict retries");
+        this.tokenVerifications = timer("picpay.token.verification", "Time to verify a JWT");
+        this.authentications = timer("picpay.request.authentication", "Time the security filter spends authenticating a request");
+        this.userLookups = timer("picpay.user.lookup", "Time to load a user by email");
+        this.passwordChecks = timer("picpay.password.check", "Time to check a password against its hash");
+        Gauge.builder("picpay.transfer.in.flight", transfersInFlight, AtomicInteger::get)
+                .description("Transfers being applied right now")
+                .register(registry);
+    }
+
+    public <T> T recordTransfer(Supplier<T> transfer) {
+        transfersInFlight.incrementAndGet();
+        try {
+            return transfers.record(transfer);
+        } finally {
+            transfersInFlight.decrementAndGet();
+        }
+    }
+
+    public <T> T recordTokenVerification(Supplier<T> verification) {
+        return tokenVerifications.record(verification);
+    }
+
+    public void recordAuthentication(Runnable authentication) {
+        authentications.record(authentication);
+    }
+
+    public <T> T recordUserLookup(Supplier<T> lookup) {
+        return userLookups.record(lookup);
+    }
+
+    public <T> T recordPasswordCheck(Supplier<T> check) {
+        return passwordChecks.record(check);
+    }
+
+    public void countBusinessError(BusinessException exception) {
+        countBusinessError(exception.getReason());
+    }
+
+    /**
+     * @param reason a fixed description of the broken rule, since each one is a time series
+     */
+    public void countBusinessError(String reason) {
+        businessErrors.computeIfAbsent(reason, tag -> Counter.builder("picpay.business.errors")
+                        .description("Requests rejected by a business rule")
+                        .tag("reason", tag)
+                        .register(registry))
+                .increment();
+    }
+
+    private Timer timer(String name, String description) {
+        return Timer.builder(name)
+                .description(description)
+                .publishPercentileHistogram()
+                .register(registry);
+    }
+}
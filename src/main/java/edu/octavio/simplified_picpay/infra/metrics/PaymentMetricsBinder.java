@@ -0,0 +1,114 @@
+package edu.octavio.simplified_picpay.infra.metrics;
+
+import edu.octavio.simplified_picpay.infra.database.ReplicaLagMonitor;
+import edu.octavio.simplified_picpay.infra.database.ReplicaRoutingDataSource;
+import edu.octavio.simplified_picpay.infra.security.PasswordHasher;
+import edu.octavio.simplified_picpay.service.async.AsyncTransferService;
+import edu.octavio.simplified_picpay.service.authorization.TransferAuthorizationGuard;
+import edu.octavio.simplified_picpay.service.ledger.LedgerReconciliation;
+import edu.octavio.simplified_picpay.service.ledger.ReconciliationReport;
+import edu.octavio.simplified_picpay.service.notification.OutboxDispatcher;
+import edu.octavio.simplified_picpay.service.retry.TransferRetryPolicy;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+
+/**
+ * Exposes the state components already keep (queue depths, retry counters) as meters, read at scrape time.
+ * HikariCP pool metrics (hikaricp.connections.*) are bound by Spring Boot itself.
+ */
+@Component
+public class PaymentMetricsBinder implements MeterBinder {
+    private final AsyncTransferService asyncTransferService;
+    private final PasswordHasher passwordHasher;
+    private final TransferRetryPolicy retryPolicy;
+    private final LedgerReconciliation ledgerReconciliation;
+    private final OutboxDispatcher outboxDispatcher;
+    private final TransferAuthorizationGuard authorizationGuard;
+    private final ObjectProvider<ReplicaRoutingDataSource> replicaRouting;
+
+    public PaymentMetricsBinder(AsyncTransferService asyncTransferService, PasswordHasher passwordHasher, TransferRetryPolicy retryPolicy,
+                                LedgerReconciliation ledgerReconciliation, OutboxDispatcher outboxDispatcher,
+                                TransferAuthorizationGuard authorizationGuard, ObjectProvider<ReplicaRoutingDataSource> replicaRouting) {
+        this.asyncTransferService = asyncTransferService;
+        this.passwordHasher = passwordHasher;
+        this.retryPolicy = retryPolicy;
+        this.ledgerReconciliation = ledgerReconciliation;
+        this.outboxDispatcher = outboxDispatcher;
+        this.authorizationGuard = authorizationGuard;
+        this.replicaRouting = replicaRouting;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("picpay.transfer.queue.size", asyncTransferService, AsyncTransferService::queued)
+                .description("Asynchronous transfers waiting to be applied")
+                .register(registry);
+        Gauge.builder("picpay.password.queue.size", passwordHasher, PasswordHasher::queued)
+                .description("Password hashes and checks waiting for a thread")
+                .register(registry);
+
+        Gauge.builder("picpay.ledger.mismatches", ledgerReconciliation, PaymentMetricsBinder::lastMismatches)
+                .description("Users whose balance didn't match their ledger in the last reconciliation")
+                .register(registry);
+
+        FunctionCounter.builder("picpay.transfer.attempts", retryPolicy, policy -> policy.stats().attempts())
+                .description("Transfer attempts, retries included")
+                .register(registry);
+        FunctionCounter.builder("picpay.transfer.conflicts", retryPolicy, policy -> policy.stats().conflicts())
+                .description("Transfer attempts that failed because of a concurrent writer")
+                .register(registry);
+        FunctionCounter.builder("picpay.transfer.retries", retryPolicy, policy -> policy.stats().retries())
+                .description("Transfer attempts retried after a conflict")
+                .register(registry);
+        FunctionCounter.builder("picpay.transfer.retries.exhausted", retryPolicy, policy -> policy.stats().exhausted())
+                .description("Transfers that gave up after the last conflicting attempt")
+                .register(registry);
+
+        FunctionCounter.builder("picpay.notification.delivered", outboxDispatcher, OutboxDispatcher::delivered)
+                .description("Transfer notifications delivered")
+                .register(registry);
+        FunctionCounter.builder("picpay.notification.failures", outboxDispatcher, OutboxDispatcher::failures)
+                .description("Transfer notification attempts that failed")
+                .register(registry);
+        FunctionCounter.builder("picpay.notification.abandoned", outboxDispatcher, OutboxDispatcher::abandoned)
+                .description("Transfer notifications given up after the last attempt")
+                .register(registry);
+
+        FunctionCounter.builder("picpay.authorization.calls", authorizationGuard, TransferAuthorizationGuard::calls)
+                .description("Calls made to the transfer authorizer")
+                .register(registry);
+        FunctionCounter.builder("picpay.authorization.failures", authorizationGuard, TransferAuthorizationGuard::failures)
+                .description("Transfer authorizer calls that failed or timed out")
+                .register(registry);
+        FunctionCounter.builder("picpay.authorization.degraded", authorizationGuard, TransferAuthorizationGuard::degraded)
+                .description("Transfers decided without an answer from the authorizer")
+                .register(registry);
+        Gauge.builder("picpay.authorization.circuit.open", authorizationGuard, guard -> guard.isCircuitClosed() ? 0 : 1)
+                .description("Whether the transfer authorizer circuit is open (1) or closed (0)")
+                .register(registry);
+
+        replicaRouting.ifAvailable(routing -> {
+            Gauge.builder("picpay.datasource.replica.lag", routing.lagMonitor(), ReplicaLagMonitor::lagSeconds)
+                    .description("How far the replica was behind the primary at the last check")
+                    .baseUnit("seconds")
+                    .register(registry);
+            FunctionCounter.builder("picpay.datasource.reads", routing, ReplicaRoutingDataSource::replicaReads)
+                    .description("Read-only transactions, by the database they were sent to")
+                    .tag("target", "replica")
+                    .register(registry);
+            FunctionCounter.builder("picpay.datasource.reads", routing, ReplicaRoutingDataSource::primaryReads)
+                    .description("Read-only transactions, by the database they were sent to")
+                    .tag("target", "primary")
+                    .register(registry);
+        });
+    }
+
+    private static double lastMismatches(LedgerReconciliation reconciliation) {
+        ReconciliationReport report = reconciliation.lastReport();
+        return report == null ? 0 : report.mismatches().size();
+    }
+}
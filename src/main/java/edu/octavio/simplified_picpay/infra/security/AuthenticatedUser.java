@@ -0,0 +1,15 @@
+package edu.octavio.simplified_picpay.infra.security;
+
+import edu.octavio.simplified_picpay.domain.model.User;
+import edu.octavio.simplified_picpay.domain.model.enums.UserType;
+
+/**
+ * What a request knows about its caller once the token is verified. Controllers receive it through
+ * {@code @AuthenticationPrincipal} instead of parsing the Authorization header and loading the user again.
+ */
+public record AuthenticatedUser(Long id, String email, UserType userType) {
+
+    public static AuthenticatedUser of(User user) {
+        return new AuthenticatedUser(user.getId(), user.getEmail(), user.getUserType());
+    }
+}
@@ -0,0 +1,125 @@
+package edu.octavio.simplified_picpay.infra.security;
+
+import edu.octavio.simplified_picpay.infra.metrics.PaymentMetrics;
+import edu.octavio.simplified_picpay.service.exception.QueueFullException;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Runs password hashing and checking on a dedicated pool, one thread per core by default, so a login storm
+ * can't take every request thread for CPU-bound BCrypt work. Requests beyond {@code queue-capacity} are
+ * rejected right away with {@link QueueFullException} instead of waiting. The returned futures complete on the
+ * application task executor, so whatever callers chain on them, like inserting the user, never holds a hashing
+ * thread.
+ * <p>
+ * Hashes whose BCrypt cost differs from the configured {@code strength} are rehashed after a successful check,
+ * so changing the strength applies to every user as they log in, without a migration.
+ */
+@Component
+public class PasswordHasher {
+    private static final Logger LOGGER = LoggerFactory.getLogger(PasswordHasher.class);
+    private static final Pattern BCRYPT_COST = Pattern.compile("^\\$2[abxy]?\\$(\\d{2})\\$");
+
+    private final PasswordEncoder passwordEncoder;
+    private final int strength;
+    private final ThreadPoolExecutor executor;
+    private final Executor callbacks;
+    private final PaymentMetrics metrics;
+
+    public PasswordHasher(PasswordEncoder passwordEncoder,
+                          PaymentMetrics metrics,
+                          @Qualifier(TaskExecutionAutoConfiguration.APPLICATION_TASK_EXECUTOR_BEAN_NAME) Executor callbacks,
+                          @Value("${api.security.password.strength:10}") int strength,
+                          @Value("${api.security.password.threads:0}") int threads,
+                          @Value("${api.security.password.queue-capacity:100}") int queueCapacity) {
+        this.passwordEncoder = passwordEncoder;
+        this.strength = strength;
+        this.callbacks = callbacks;
+        this.metrics = metrics;
+
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        AtomicInteger count = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "password-hasher-" + count.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdown();
+    }
+
+    public CompletableFuture<String> encode(CharSequence rawPassword) {
+        return submit(() -> passwordEncoder.encode(rawPassword));
+    }
+
+    public CompletableFuture<Boolean> matches(CharSequence rawPassword, String encodedPassword) {
+        return submit(() -> metrics.recordPasswordCheck(() -> passwordEncoder.matches(rawPassword, encodedPassword)));
+    }
+
+    /**
+     * Whether the hash was made with a different cost than the configured strength, higher or lower.
+     */
+    public boolean needsRehash(String encodedPassword) {
+        if (encodedPassword == null)
+            return false;
+        Matcher matcher = BCRYPT_COST.matcher(encodedPassword);
+        if (matcher.find())
+            return Integer.parseInt(matcher.group(1)) != strength;
+        return passwordEncoder.upgradeEncoding(encodedPassword);
+    }
+
+    /**
+     * After a successful check, hashes the password again in the background when {@link #needsRehash} and hands
+     * the new hash to {@code store}. Best effort: when the pool is busy or it fails, the next login tries again.
+     */
+    public void rehashIfNeeded(CharSequence rawPassword, String encodedPassword, Consumer<String> store) {
+        if (!needsRehash(encodedPassword))
+            return;
+        try {
+            encode(rawPassword).thenAccept(store).exceptionally(e -> {
+                LOGGER.warn("Could not rehash a password", e);
+                return null;
+            });
+        } catch (QueueFullException e) {
+            LOGGER.debug("Skipped a password rehash, the hashing pool is busy");
+        }
+    }
+
+    public int queued() {
+        return executor.getQueue().size();
+    }
+
+    private <T> CompletableFuture<T> submit(Supplier<T> work) {
+        CompletableFuture<T> result;
+        try {
+            result = CompletableFuture.supplyAsync(work, executor);
+        } catch (RejectedExecutionException e) {
+            throw new QueueFullException("Too many password checks in progress, try again later");
+        }
+        return result.whenCompleteAsync((value, error) -> {}, callbacks);
+    }
+}
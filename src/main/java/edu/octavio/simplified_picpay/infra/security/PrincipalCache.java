@@ -0,0 +1,43 @@
+package edu.octavio.simplified_picpay.infra.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import edu.octavio.simplified_picpay.service.UserService;
+import edu.octavio.simplified_picpay.service.event.UserChangedEvent;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * Bounded, TTL-evicted map from token subject (the user's email) to the authenticated principal,
+ * so a verified token doesn't cost a user lookup on every request. Misses bypass the user cache, so a principal
+ * is never older than {@code ttl}, even when the user changed on another node.
+ */
+@Component
+public class PrincipalCache {
+    private final UserService userService;
+    private final Cache<String, AuthenticatedUser> principals;
+
+    public PrincipalCache(UserService userService,
+                          @Value("${api.security.principal-cache.size:10000}") long maximumSize,
+                          @Value("${api.security.principal-cache.ttl:PT5M}") Duration timeToLive) {
+        this.userService = userService;
+        this.principals = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(timeToLive)
+                .build();
+    }
+
+    public Optional<AuthenticatedUser> resolve(String subject) {
+        return Optional.ofNullable(principals.get(subject,
+                email -> userService.findCredentials(email).map(AuthenticatedUser::of).orElse(null)));
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onUserChanged(UserChangedEvent event) {
+        principals.invalidate(event.email());
+    }
+}
@@ -1,14 +1,14 @@
 package edu.octavio.simplified_picpay.infra.security;
 
-import edu.octavio.simplified_picpay.domain.model.User;
-import edu.octavio.simplified_picpay.domain.repository.UserRepository;
-import edu.octavio.simplified_picpay.service.UserService;
+import edu.octavio.simplified_picpay.infra.metrics.PaymentMetrics;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Component;
@@ -16,26 +16,40 @@ import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
 import java.util.Collections;
+import java.util.List;
+import java.util.Set;
 
 @Component
 public class SecurityFilter extends OncePerRequestFilter {
+    private static final List<GrantedAuthority> AUTHORITIES = Collections.singletonList(new SimpleGrantedAuthority("ROLE_USER"));
+    private static final List<GrantedAuthority> ADMIN_AUTHORITIES = List.of(new SimpleGrantedAuthority("ROLE_USER"), new SimpleGrantedAuthority("ROLE_ADMIN"));
+
     @Autowired
     TokenService tokenService;
     @Autowired
-    UserService userService;
+    PrincipalCache principalCache;
+    @Autowired
+    PaymentMetrics metrics;
+    @Value("${api.security.admins:}")
+    Set<String> admins;
 
     @Override
     protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain) throws ServletException, IOException {
         var token = this.recoverToken(request);
-        var login = tokenService.validadeToken(token);
+        if (token != null)
+            metrics.recordAuthentication(() -> authenticate(token));
+        filterChain.doFilter(request, response);
+    }
 
+    private void authenticate(String token) {
+        var login = tokenService.validadeToken(token);
         if (login != null) {
-            User user = userService.findByEmail(login);
-            var authorities = Collections.singletonList(new SimpleGrantedAuthority("ROLE_USER"));
-            var authentication = new UsernamePasswordAuthenticationToken(user, null, authorities);
-            SecurityContextHolder.getContext().setAuthentication(authentication);
+            principalCache.resolve(login).ifPresent(principal -> {
+                var authorities = admins.contains(principal.email()) ? ADMIN_AUTHORITIES : AUTHORITIES;
+                var authentication = new UsernamePasswordAuthenticationToken(principal, null, authorities);
+                SecurityContextHolder.getContext().setAuthentication(authentication);
+            });
         }
-        filterChain.doFilter(request, response);
     }
 
     private String recoverToken(HttpServletRequest request) {
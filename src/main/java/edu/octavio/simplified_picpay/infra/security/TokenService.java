@@ -1,27 +1,52 @@
 package edu.octavio.simplified_picpay.infra.security;
 
 import com.auth0.jwt.JWT;
+import com.auth0.jwt.JWTVerifier;
 import com.auth0.jwt.algorithms.Algorithm;
 import com.auth0.jwt.exceptions.JWTCreationException;
 import com.auth0.jwt.exceptions.JWTVerificationException;
+import com.auth0.jwt.interfaces.DecodedJWT;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
 import edu.octavio.simplified_picpay.domain.model.User;
+import edu.octavio.simplified_picpay.infra.metrics.PaymentMetrics;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
 import java.time.Instant;
 import java.time.LocalDateTime;
 import java.time.ZoneOffset;
 
 @Service
 public class TokenService {
-    @Value("${api.security.token.secret}")
-    private String secret;
+    private static final String ISSUER = "picpay";
+
+    // Both are immutable and thread-safe, so the key setup happens once instead of on every request.
+    private final Algorithm algorithm;
+    private final JWTVerifier verifier;
+    private final Cache<String, VerifiedToken> verifiedTokens;
+    private final PaymentMetrics metrics;
+
+    public TokenService(@Value("${api.security.token.secret}") String secret,
+                        @Value("${api.security.token.cache-size:10000}") long cacheSize,
+                        PaymentMetrics metrics) {
+        this.metrics = metrics;
+        this.algorithm = Algorithm.HMAC512(secret);
+        this.verifier = JWT.require(algorithm)
+                .withIssuer(ISSUER)
+                .build();
+        this.verifiedTokens = Caffeine.newBuilder()
+                .maximumSize(cacheSize)
+                .expireAfter(new UntilTokenExpires())
+                .build();
+    }
 
     public String generateToken(User user) {
         try {
-            Algorithm algorithm = Algorithm.HMAC512(secret);
             return JWT.create()
-                    .withIssuer("picpay")
+                    .withIssuer(ISSUER)
                     .withSubject(user.getEmail())
                     .withExpiresAt(this.generateExpirationDate())
                     .sign(algorithm);
@@ -31,13 +56,24 @@ public class TokenService {
     }
 
     public String validadeToken(String token) {
+        if (token == null)
+            return null;
+        return metrics.recordTokenVerification(() -> verify(token));
+    }
+
+    private String verify(String token) {
+        // Entries are keyed by the signature, but a hit still has to be the exact same token:
+        // a valid signature pasted onto a different payload must go through verification and fail.
+        String signature = token.substring(token.lastIndexOf('.') + 1);
+        VerifiedToken verified = verifiedTokens.getIfPresent(signature);
+        if (verified != null && verified.token().equals(token))
+            return verified.subject();
+
         try {
-            Algorithm algorithm = Algorithm.HMAC512(secret);
-            return JWT.require(algorithm)
-                    .withIssuer("picpay")
-                    .build()
-                    .verify(token)
-                    .getSubject();
+            DecodedJWT decoded = verifier.verify(token);
+            if (decoded.getExpiresAtAsInstant() != null)
+                verifiedTokens.put(signature, new VerifiedToken(token, decoded.getSubject(), decoded.getExpiresAtAsInstant()));
+            return decoded.getSubject();
         } catch (JWTVerificationException exception) {
             return null;
         }
@@ -46,4 +82,27 @@ public class TokenService {
     private Instant generateExpirationDate() {
         return LocalDateTime.now().plusHours(1).toInstant(ZoneOffset.of("-03:00"));
     }
+
+    private record VerifiedToken(String token, String subject, Instant expiresAt) {
+    }
+
+    /**
+     * Drops a cached token the moment it expires, so the cache never answers for a token the verifier would reject.
+     */
+    private static class UntilTokenExpires implements Expiry<String, VerifiedToken> {
+        @Override
+        public long expireAfterCreate(String signature, VerifiedToken token, long currentTime) {
+            return Math.max(0, Duration.between(Instant.now(), token.expiresAt()).toNanos());
+        }
+
+        @Override
+        public long expireAfterUpdate(String signature, VerifiedToken token, long currentTime, long currentDuration) {
+            return expireAfterCreate(signature, token, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String signature, VerifiedToken token, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
 }
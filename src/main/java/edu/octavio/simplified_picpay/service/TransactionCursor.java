@@ -0,0 +1,27 @@
+package edu.octavio.simplified_picpay.service;
+
+import edu.octavio.simplified_picpay.service.exception.BusinessException;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+
+/**
+ * Position in a transaction history ordered by creation time and id, newest first.
+ * Rendered as {@code <createdAt>_<id>}, e.g. {@code 2024-09-30T09:56:03.883737_15}.
+ */
+public record TransactionCursor(LocalDateTime createdAt, Long id) {
+
+    public static TransactionCursor parse(String value) {
+        int separator = value.lastIndexOf('_');
+        try {
+            return new TransactionCursor(LocalDateTime.parse(value.substring(0, separator)), Long.valueOf(value.substring(separator + 1)));
+        } catch (DateTimeParseException | IndexOutOfBoundsException | NumberFormatException e) {
+            throw new BusinessException("Invalid cursor", "Invalid cursor: " + value);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return createdAt + "_" + id;
+    }
+}
@@ -1,7 +1,32 @@
 package edu.octavio.simplified_picpay.service;
 
 import edu.octavio.simplified_picpay.domain.model.Transaction;
+import edu.octavio.simplified_picpay.domain.model.enums.TransactionDirection;
+import edu.octavio.simplified_picpay.domain.repository.projection.TransactionView;
+import edu.octavio.simplified_picpay.service.authorization.TransferAuthorization;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.function.Consumer;
 
 public interface TransactionService extends CrudService<Long, Transaction> {
+    Transaction transfer(Long payerId, Long payeeId, BigDecimal value);
+
+    /**
+     * Transfers at most once per payer and {@code idempotencyKey}, and returns the transaction as responses show it.
+     * A repeat of a recent request is answered with the view kept from the first one, without reading the database.
+     */
+    TransactionView transfer(Long payerId, Long payeeId, BigDecimal value, String idempotencyKey);
 
+    /**
+     * Applies a transfer the caller already authorized, so a caller that holds a transaction open doesn't wait on
+     * the authorizer inside it. Joins the caller's transaction when there is one.
+     */
+    Transaction transfer(TransferAuthorization authorization);
+    void validateTransfer(Long payerId, Long payeeId, BigDecimal value);
+    TransactionView findViewById(Long id);
+    List<TransactionView> findPage(Long after, int size);
+    void streamAll(Consumer<TransactionView> consumer);
+    List<TransactionView> findHistory(Long userId, TransactionDirection direction, LocalDateTime from, LocalDateTime to, TransactionCursor after, int size);
 }
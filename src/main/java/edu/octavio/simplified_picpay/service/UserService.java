@@ -2,9 +2,19 @@ package edu.octavio.simplified_picpay.service;
 
 import edu.octavio.simplified_picpay.domain.model.User;
 
+import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 public interface UserService extends CrudService<Long, User> {
     User findByEmail(String email);
     Optional<User> findByEmailOptional(String email);
+
+    /**
+     * Looks the user up for authentication, bypassing the user cache.
+     */
+    Optional<User> findCredentials(String email);
+    List<User> findPage(Long after, int size);
+    void streamAll(Consumer<User> consumer);
+    boolean updatePassword(Long id, String previousPassword, String password);
 }
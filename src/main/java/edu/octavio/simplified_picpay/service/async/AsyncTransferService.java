@@ -0,0 +1,308 @@
+package edu.octavio.simplified_picpay.service.async;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import edu.octavio.simplified_picpay.domain.model.Transaction;
+import edu.octavio.simplified_picpay.domain.repository.UserRepository;
+import edu.octavio.simplified_picpay.infra.metrics.PaymentMetrics;
+import edu.octavio.simplified_picpay.service.TransactionService;
+import edu.octavio.simplified_picpay.service.authorization.TransferAuthorization;
+import edu.octavio.simplified_picpay.service.authorization.TransferAuthorizationGuard;
+import edu.octavio.simplified_picpay.service.exception.AuthorizerUnavailableException;
+import edu.octavio.simplified_picpay.service.exception.BusinessException;
+import edu.octavio.simplified_picpay.service.exception.NotFoundException;
+import edu.octavio.simplified_picpay.service.exception.QueueFullException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Accepts transfers into bounded in-process queues and applies them in the background.
+ * <p>
+ * Queues are sharded by payer id and each shard has a single worker, so transfers from the same account are
+ * applied in the order they were accepted without any global lock. A worker drains up to {@code batch-size}
+ * transfers at a time and applies them in one database transaction; if any of them fails, the batch is rolled
+ * back and replayed one transfer per transaction so only the failing one is reported. A full shard rejects the
+ * transfer right away instead of letting the backlog grow.
+ * <p>
+ * Statuses are kept in memory for {@code status-ttl}, so they don't survive a restart. The workers start and
+ * stop with the application context; transfers still queued when it stops get {@code shutdown-timeout} to finish.
+ */
+@Service
+public class AsyncTransferService implements SmartLifecycle {
+    private static final Logger LOGGER = LoggerFactory.getLogger(AsyncTransferService.class);
+    private static final long POLL_MILLIS = 100;
+
+    private final TransactionService transactionService;
+    private final TransferAuthorizationGuard authorizationGuard;
+    private final TransactionTemplate transactionTemplate;
+    private final UserRepository userRepository;
+    private final PaymentMetrics metrics;
+    private final boolean enabled;
+    private final int batchSize;
+    private final Duration shutdownTimeout;
+    private final List<BlockingQueue<PendingTransfer>> shards = new ArrayList<>();
+    private final ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+    private final List<Future<?>> workers = new ArrayList<>();
+    private final Cache<String, TransferStatus> statuses;
+
+    private volatile boolean accepting;
+    private volatile boolean running;
+
+    public AsyncTransferService(TransactionService transactionService,
+                                TransferAuthorizationGuard authorizationGuard,
+                                TransactionTemplate transactionTemplate,
+                                UserRepository userRepository,
+                                PaymentMetrics metrics,
+                                @Value("${api.transaction.async.enabled:false}") boolean enabled,
+                                @Value("${api.transaction.async.shards:0}") int shardCount,
+                                @Value("${api.transaction.async.queue-capacity:1000}") int queueCapacity,
+                                @Value("${api.transaction.async.batch-size:32}") int batchSize,
+                                @Value("${api.transaction.async.status-ttl:PT1H}") Duration statusTimeToLive,
+                                @Value("${api.transaction.async.status-cache-size:1000000}") long statusCacheSize,
+                                @Value("${api.transaction.async.shutdown-timeout:PT30S}") Duration shutdownTimeout) {
+        if (batchSize < 1)
+            throw new IllegalArgumentException("Async transfer batch size must be at least 1");
+        this.transactionService = transactionService;
+        this.authorizationGuard = authorizationGuard;
+        this.transactionTemplate = transactionTemplate;
+        this.userRepository = userRepository;
+        this.metrics = metrics;
+        this.enabled = enabled;
+        this.batchSize = batchSize;
+        this.shutdownTimeout = shutdownTimeout;
+        this.statuses = Caffeine.newBuilder()
+                .maximumSize(statusCacheSize)
+                .expireAfterWrite(statusTimeToLive)
+                .build();
+
+        int count = shardCount > 0 ? shardCount : Runtime.getRuntime().availableProcessors();
+        for (int i = 0; i < count; i++) {
+            shards.add(new ArrayBlockingQueue<>(queueCapacity));
+        }
+        // One thread per shard and no queue: a worker never gives its thread back until it's stopped.
+        executor.setCorePoolSize(count);
+        executor.setMaxPoolSize(count);
+        executor.setQueueCapacity(0);
+        executor.setThreadNamePrefix("transfer-shard-");
+    }
+
+    /**
+     * Starts one worker per shard once the context is refreshed.
+     */
+    @Override
+    public synchronized void start() {
+        if (!enabled || running)
+            return;
+        executor.initialize();
+        accepting = true;
+        for (BlockingQueue<PendingTransfer> shard : shards) {
+            workers.add(executor.submit(() -> drain(shard)));
+        }
+        running = true;
+    }
+
+    /**
+     * Stops accepting transfers and gives the workers {@code shutdown-timeout} to apply the queued ones. Workers
+     * still running then are interrupted.
+     */
+    @Override
+    public synchronized void stop() {
+        if (!running)
+            return;
+        accepting = false;
+        long deadline = System.nanoTime() + shutdownTimeout.toNanos();
+        try {
+            for (Future<?> worker : workers) {
+                worker.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+            }
+        } catch (TimeoutException | ExecutionException e) {
+            // The queues are reported below; interrupting the workers is all that's left to do.
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            executor.shutdown();
+            workers.clear();
+            running = false;
+        }
+        int abandoned = queued();
+        if (abandoned > 0)
+            LOGGER.warn("Stopped with {} queued transfers not applied", abandoned);
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Validates the transfer and queues it on its payer's shard.
+     *
+     * @throws QueueFullException when the shard is full or the application is shutting down
+     */
+    public TransferStatus submit(Long payerId, Long payeeId, BigDecimal value, String idempotencyKey) {
+        if (!enabled)
+            throw new BusinessException("Asynchronous transfers are disabled");
+        transactionService.validateTransfer(payerId, payeeId, value);
+        if (!accepting)
+            throw new QueueFullException("The transfer queue is shutting down, try again later");
+
+        TransferStatus status = TransferStatus.queued(UUID.randomUUID().toString(), payerId, payeeId, value);
+        // Stored before queuing, so the worker always finds the status it has to complete.
+        statuses.put(status.id(), status);
+        if (!shard(payerId).offer(new PendingTransfer(status.id(), payerId, payeeId, value, idempotencyKey))) {
+            statuses.invalidate(status.id());
+            throw new QueueFullException("The transfer queue is full, try again later");
+        }
+        return status;
+    }
+
+    public TransferStatus findStatus(String id) {
+        TransferStatus status = statuses.getIfPresent(id);
+        if (status == null)
+            throw new NotFoundException();
+        return status;
+    }
+
+    public int queued() {
+        return shards.stream().mapToInt(BlockingQueue::size).sum();
+    }
+
+    private BlockingQueue<PendingTransfer> shard(Long payerId) {
+        return shards.get(Math.floorMod(Long.hashCode(payerId), shards.size()));
+    }
+
+    private void drain(BlockingQueue<PendingTransfer> shard) {
+        List<PendingTransfer> batch = new ArrayList<>(batchSize);
+        while (accepting || !shard.isEmpty()) {
+            try {
+                PendingTransfer first = shard.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (first == null)
+                    continue;
+                batch.add(first);
+                shard.drainTo(batch, batchSize - 1);
+                apply(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                LOGGER.error("Transfer worker failed to apply a batch", e);
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void apply(List<PendingTransfer> batch) {
+        // Keyed transfers run alone: recovering a reused key needs a fresh transaction to look the original up.
+        if (batch.size() > 1 && batch.stream().allMatch(transfer -> transfer.idempotencyKey() == null)) {
+            applyBatch(batch);
+            return;
+        }
+        batch.forEach(transfer -> applyOne(transfer, () -> transfer.idempotencyKey() == null
+                ? transactionService.transfer(transfer.payerId(), transfer.payeeId(), transfer.value()).getId()
+                : transactionService.transfer(transfer.payerId(), transfer.payeeId(), transfer.value(), transfer.idempotencyKey()).id()));
+    }
+
+    private void applyBatch(List<PendingTransfer> batch) {
+        // The transaction holds the rows of earlier transfers while later ones run, so every transfer is authorized
+        // before it starts. A denied transfer fails on its own; the others keep their authorization for the fallback.
+        List<PendingTransfer> authorized = new ArrayList<>(batch.size());
+        List<TransferAuthorization> authorizations = new ArrayList<>(batch.size());
+        for (PendingTransfer transfer : batch) {
+            try {
+                authorizations.add(authorizationGuard.authorize(transfer.payerId(), transfer.payeeId(), transfer.value()));
+                authorized.add(transfer);
+            } catch (RuntimeException e) {
+                fail(transfer, e);
+            }
+        }
+        if (authorized.isEmpty())
+            return;
+
+        List<Transaction> transactions;
+        try {
+            transactions = transactionTemplate.execute(status -> {
+                // The batch updates several payers and payees in the order transfers were queued. Taking every row
+                // up front, in ascending id like single transfers, keeps two batches from waiting on each other.
+                // Credits to merchant stripes aren't covered; a deadlock there rolls back to the fallback below.
+                userRepository.lockInIdOrder(participants(authorizations));
+                return authorizations.stream()
+                        .map(transactionService::transfer)
+                        .toList();
+            });
+        } catch (RuntimeException e) {
+            transactions = null;
+        }
+        if (transactions != null) {
+            for (int i = 0; i < authorized.size(); i++) {
+                Long transactionId = transactions.get(i).getId();
+                statuses.asMap().computeIfPresent(authorized.get(i).id(), (id, status) -> status.completed(transactionId));
+            }
+            return;
+        }
+        for (int i = 0; i < authorized.size(); i++) {
+            TransferAuthorization authorization = authorizations.get(i);
+            applyOne(authorized.get(i), () -> transactionService.transfer(authorization).getId());
+        }
+    }
+
+    private static Set<Long> participants(List<TransferAuthorization> authorizations) {
+        Set<Long> ids = new TreeSet<>();
+        for (TransferAuthorization authorization : authorizations) {
+            ids.add(authorization.payerId());
+            ids.add(authorization.payeeId());
+        }
+        return ids;
+    }
+
+    private void applyOne(PendingTransfer transfer, Supplier<Long> transaction) {
+        try {
+            Long transactionId = transaction.get();
+            statuses.asMap().computeIfPresent(transfer.id(), (id, status) -> status.completed(transactionId));
+        } catch (RuntimeException e) {
+            fail(transfer, e);
+        }
+    }
+
+    private void fail(PendingTransfer transfer, RuntimeException exception) {
+        String error;
+        if (exception instanceof BusinessException e) {
+            // Nobody is waiting on a response to count it, as GlobalExceptionHandler does for synchronous requests.
+            metrics.countBusinessError(e);
+            error = e.getMessage();
+        } else if (exception instanceof NotFoundException) {
+            metrics.countBusinessError(exception.getMessage());
+            error = exception.getMessage();
+        } else if (exception instanceof AuthorizerUnavailableException) {
+            error = exception.getMessage();
+        } else {
+            LOGGER.error("Transfer {} from {} to {} failed", transfer.id(), transfer.payerId(), transfer.payeeId(), exception);
+            error = "Unexpected server error.";
+        }
+        statuses.asMap().computeIfPresent(transfer.id(), (id, status) -> status.failed(error));
+    }
+}
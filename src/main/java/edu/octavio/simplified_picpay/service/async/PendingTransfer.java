@@ -0,0 +1,6 @@
+package edu.octavio.simplified_picpay.service.async;
+
+import java.math.BigDecimal;
+
+record PendingTransfer(String id, Long payerId, Long payeeId, BigDecimal value, String idempotencyKey) {
+}
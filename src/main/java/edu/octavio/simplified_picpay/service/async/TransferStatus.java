@@ -0,0 +1,25 @@
+package edu.octavio.simplified_picpay.service.async;
+
+import java.math.BigDecimal;
+
+/**
+ * Where an asynchronous transfer stands. {@code transactionId} is set once it's completed, {@code error} once it failed.
+ */
+public record TransferStatus(String id, Long payerId, Long payeeId, BigDecimal value, State state, Long transactionId, String error) {
+
+    public enum State {
+        QUEUED, COMPLETED, FAILED
+    }
+
+    static TransferStatus queued(String id, Long payerId, Long payeeId, BigDecimal value) {
+        return new TransferStatus(id, payerId, payeeId, value, State.QUEUED, null, null);
+    }
+
+    TransferStatus completed(Long transactionId) {
+        return new TransferStatus(id, payerId, payeeId, value, State.COMPLETED, transactionId, null);
+    }
+
+    TransferStatus failed(String error) {
+        return new TransferStatus(id, payerId, payeeId, value, State.FAILED, null, error);
+    }
+}
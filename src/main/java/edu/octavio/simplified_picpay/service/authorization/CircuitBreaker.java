@@ -0,0 +1,111 @@
+package edu.octavio.simplified_picpay.service.authorization;
+
+import java.time.Duration;
+import java.util.function.LongSupplier;
+
+/**
+ * Count-based circuit breaker. It opens when at least {@code failureRateThreshold} of the last {@code windowSize}
+ * calls failed (once {@code minimumCalls} were seen), rejects every call for {@code openDuration}, then lets a
+ * single trial call through: its success closes the circuit, its failure opens it again.
+ */
+final class CircuitBreaker {
+    private enum State {CLOSED, OPEN, HALF_OPEN}
+
+    private final boolean[] failed;
+    private final int minimumCalls;
+    private final double failureRateThreshold;
+    private final long openNanos;
+    private final LongSupplier nanoClock;
+
+    private State state = State.CLOSED;
+    private int recorded;
+    private int next;
+    private int failures;
+    private long openUntil;
+    private boolean trialInFlight;
+
+    CircuitBreaker(int windowSize, int minimumCalls, double failureRateThreshold, Duration openDuration, LongSupplier nanoClock) {
+        if (windowSize < 1 || minimumCalls < 1 || minimumCalls > windowSize)
+            throw new IllegalArgumentException("Circuit breaker needs 1 <= minimum calls <= window size");
+        this.failed = new boolean[windowSize];
+        this.minimumCalls = minimumCalls;
+        this.failureRateThreshold = failureRateThreshold;
+        this.openNanos = openDuration.toNanos();
+        this.nanoClock = nanoClock;
+    }
+
+    /**
+     * @return whether a call may go through; every permitted call must end with {@link #onSuccess},
+     * {@link #onFailure} or {@link #release}
+     */
+    synchronized boolean tryAcquire() {
+        if (state == State.OPEN) {
+            if (nanoClock.getAsLong() - openUntil < 0)
+                return false;
+            state = State.HALF_OPEN;
+            trialInFlight = false;
+        }
+        if (state == State.HALF_OPEN) {
+            if (trialInFlight)
+                return false;
+            trialInFlight = true;
+        }
+        return true;
+    }
+
+    synchronized void onSuccess() {
+        if (state == State.HALF_OPEN)
+            transition(State.CLOSED);
+        else if (state == State.CLOSED)
+            record(false);
+    }
+
+    synchronized void onFailure() {
+        if (state == State.HALF_OPEN) {
+            transition(State.OPEN);
+        } else if (state == State.CLOSED) {
+            record(true);
+            if (recorded >= minimumCalls && failures >= failureRateThreshold * recorded)
+                transition(State.OPEN);
+        }
+    }
+
+    /**
+     * Ends a permitted call that never reached the authorizer, without counting it either way.
+     */
+    synchronized void release() {
+        if (state == State.HALF_OPEN)
+            trialInFlight = false;
+    }
+
+    Duration openDuration() {
+        return Duration.ofNanos(openNanos);
+    }
+
+    synchronized boolean isClosed() {
+        return state == State.CLOSED;
+    }
+
+    private void record(boolean failure) {
+        if (recorded == failed.length) {
+            if (failed[next])
+                failures--;
+        } else {
+            recorded++;
+        }
+        failed[next] = failure;
+        if (failure)
+            failures++;
+        next = (next + 1) % failed.length;
+    }
+
+    private void transition(State target) {
+        state = target;
+        recorded = 0;
+        next = 0;
+        failures = 0;
+        trialInFlight = false;
+        if (target == State.OPEN)
+            openUntil = nanoClock.getAsLong() + openNanos;
+    }
+}
@@ -0,0 +1,35 @@
+package edu.octavio.simplified_picpay.service.authorization;
+
+import java.math.BigDecimal;
+
+/**
+ * Proof that {@link TransferAuthorizationGuard} let a transfer through. Only the guard creates one, so applying a
+ * transfer from an authorization can't skip the authorizer, and a caller that has to retry the transfer can do it
+ * without asking the authorizer again.
+ */
+public final class TransferAuthorization {
+    private final Long payerId;
+    private final Long payeeId;
+    private final BigDecimal value;
+
+    TransferAuthorization(Long payerId, Long payeeId, BigDecimal value) {
+        this.payerId = payerId;
+        this.payeeId = payeeId;
+        this.value = value;
+    }
+
+    public Long payerId() {
+        return payerId;
+    }
+
+    /**
+     * @return the payee, or null for a batch paying several of them
+     */
+    public Long payeeId() {
+        return payeeId;
+    }
+
+    public BigDecimal value() {
+        return value;
+    }
+}
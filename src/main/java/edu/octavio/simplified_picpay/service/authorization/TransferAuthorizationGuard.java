@@ -0,0 +1,168 @@
+package edu.octavio.simplified_picpay.service.authorization;
+
+import edu.octavio.simplified_picpay.service.exception.AuthorizerUnavailableException;
+import edu.octavio.simplified_picpay.service.exception.BusinessException;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Asks the {@link TransferAuthorizer} about a transfer without letting it hold up the caller. Callers must not
+ * hold database locks yet, since the call may take up to {@code timeout}.
+ * <ul>
+ *     <li>Calls run on a pool of {@code max-concurrent} threads with no queue (the bulkhead): when they're all
+ *     busy, the call isn't made at all.</li>
+ *     <li>The caller waits at most {@code timeout} for an answer.</li>
+ *     <li>Failed and timed out calls feed a {@link CircuitBreaker}. Once it opens, the authorizer isn't called for
+ *     {@code open-duration}.</li>
+ * </ul>
+ * Whenever no answer is available, the guard is in degraded mode: transfers up to {@code degraded.max-value} go
+ * through, larger ones fail with {@link AuthorizerUnavailableException}. The default of zero denies them all.
+ * Without a {@link TransferAuthorizer} bean, every transfer is authorized.
+ */
+@Service
+public class TransferAuthorizationGuard {
+    private static final Logger LOGGER = LoggerFactory.getLogger(TransferAuthorizationGuard.class);
+
+    private final TransferAuthorizer authorizer;
+    private final Duration timeout;
+    private final Duration retryAfter;
+    private final BigDecimal degradedMaxValue;
+    private final CircuitBreaker circuitBreaker;
+    private final ThreadPoolExecutor executor;
+
+    private final LongAdder calls = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder degraded = new LongAdder();
+
+    @Autowired
+    public TransferAuthorizationGuard(ObjectProvider<TransferAuthorizer> authorizer,
+                                      @Value("${api.authorization.timeout:PT0.5S}") Duration timeout,
+                                      @Value("${api.authorization.max-concurrent:32}") int maxConcurrent,
+                                      @Value("${api.authorization.circuit.window-size:20}") int windowSize,
+                                      @Value("${api.authorization.circuit.minimum-calls:10}") int minimumCalls,
+                                      @Value("${api.authorization.circuit.failure-rate-threshold:0.5}") double failureRateThreshold,
+                                      @Value("${api.authorization.circuit.open-duration:PT10S}") Duration openDuration,
+                                      @Value("${api.authorization.degraded.max-value:0}") BigDecimal degradedMaxValue) {
+        this(authorizer.getIfAvailable(), timeout, maxConcurrent,
+                new CircuitBreaker(windowSize, minimumCalls, failureRateThreshold, openDuration, System::nanoTime), degradedMaxValue);
+    }
+
+    TransferAuthorizationGuard(TransferAuthorizer authorizer, Duration timeout, int maxConcurrent, CircuitBreaker circuitBreaker,
+                               BigDecimal degradedMaxValue) {
+        this.authorizer = authorizer;
+        this.timeout = timeout;
+        // While the circuit is open nothing new can be learned, so that's how long a client should wait.
+        this.retryAfter = circuitBreaker.openDuration();
+        this.degradedMaxValue = degradedMaxValue;
+        this.circuitBreaker = circuitBreaker;
+
+        AtomicInteger count = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(0, maxConcurrent, 60, TimeUnit.SECONDS,
+                new SynchronousQueue<>(),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "transfer-authorizer-" + count.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * @return the authorization to apply the transfer with
+     * @throws BusinessException when the authorizer denied the transfer
+     * @throws AuthorizerUnavailableException when it gave no answer and the value is above the degraded limit
+     */
+    public TransferAuthorization authorize(Long payerId, Long payeeId, BigDecimal value) {
+        if (authorizer == null)
+            return new TransferAuthorization(payerId, payeeId, value);
+
+        Boolean authorized = ask(payerId, payeeId, value);
+        if (authorized == null) {
+            degraded.increment();
+            if (value.compareTo(degradedMaxValue) > 0)
+                throw new AuthorizerUnavailableException("The transfer authorizer is unavailable, try again later", retryAfter);
+        } else if (!authorized) {
+            throw new BusinessException("Transfer not authorized");
+        }
+        return new TransferAuthorization(payerId, payeeId, value);
+    }
+
+    /**
+     * @return the authorizer's answer, or null when there's none
+     */
+    private Boolean ask(Long payerId, Long payeeId, BigDecimal value) {
+        if (!circuitBreaker.tryAcquire())
+            return null;
+
+        Future<Boolean> answer;
+        try {
+            answer = executor.submit(() -> authorizer.authorize(payerId, payeeId, value));
+        } catch (RejectedExecutionException e) {
+            // Every thread is already waiting on the authorizer; that's load, not a failure of the authorizer.
+            circuitBreaker.release();
+            return null;
+        }
+
+        calls.increment();
+        try {
+            boolean authorized = answer.get(timeout.toNanos(), TimeUnit.NANOSECONDS);
+            circuitBreaker.onSuccess();
+            return authorized;
+        } catch (TimeoutException e) {
+            answer.cancel(true);
+            LOGGER.warn("Transfer authorizer didn't answer within {}", timeout);
+        } catch (ExecutionException e) {
+            LOGGER.warn("Transfer authorizer failed: {}", e.getCause().toString());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            answer.cancel(true);
+            circuitBreaker.release();
+            return null;
+        }
+        failures.increment();
+        circuitBreaker.onFailure();
+        return null;
+    }
+
+    public boolean isEnabled() {
+        return authorizer != null;
+    }
+
+    public boolean isCircuitClosed() {
+        return circuitBreaker.isClosed();
+    }
+
+    public long calls() {
+        return calls.sum();
+    }
+
+    public long failures() {
+        return failures.sum();
+    }
+
+    public long degraded() {
+        return degraded.sum();
+    }
+}
@@ -0,0 +1,17 @@
+package edu.octavio.simplified_picpay.service.authorization;
+
+import java.math.BigDecimal;
+
+/**
+ * External service that approves transfers before any money moves. Only called through
+ * {@link TransferAuthorizationGuard}, which bounds how long and how many calls may be waiting on it.
+ */
+public interface TransferAuthorizer {
+
+    /**
+     * @param payeeId the payee, or null for a batch paying several of them
+     * @return whether the transfer is authorized
+     * @throws RuntimeException when the authorizer couldn't give an answer
+     */
+    boolean authorize(Long payerId, Long payeeId, BigDecimal value);
+}
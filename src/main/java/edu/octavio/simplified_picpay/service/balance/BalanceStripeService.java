@@ -0,0 +1,110 @@
+package edu.octavio.simplified_picpay.service.balance;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import edu.octavio.simplified_picpay.domain.model.BalanceStripe;
+import edu.octavio.simplified_picpay.domain.model.User;
+import edu.octavio.simplified_picpay.domain.model.enums.UserType;
+import edu.octavio.simplified_picpay.domain.repository.BalanceStripeRepository;
+import edu.octavio.simplified_picpay.domain.repository.UserRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Splits the balance of merchants across {@code api.balance.stripes.merchant-stripes} rows, so credits from
+ * concurrent payers don't all queue on the merchant's user row. Stripes only ever receive credits: anything
+ * that debits or overwrites a balance collapses them into the user row first.
+ * <p>
+ * Stripe counts are cached per node. A stale count is harmless: a credit to a stripe that no longer exists
+ * updates nothing and falls back to the user row.
+ */
+@Service
+public class BalanceStripeService {
+    private final BalanceStripeRepository stripes;
+    private final UserRepository userRepository;
+    private final int merchantStripes;
+    private final LoadingCache<Long, Integer> stripeCounts;
+
+    public BalanceStripeService(BalanceStripeRepository stripes, UserRepository userRepository,
+                                @Value("${api.balance.stripes.merchant-stripes:0}") int merchantStripes,
+                                @Value("${api.balance.stripes.cache-size:10000}") long cacheSize,
+                                @Value("${api.balance.stripes.cache-ttl:PT1M}") Duration cacheTtl) {
+        this.stripes = stripes;
+        this.userRepository = userRepository;
+        this.merchantStripes = merchantStripes;
+        this.stripeCounts = Caffeine.newBuilder()
+                .maximumSize(cacheSize)
+                .expireAfterWrite(cacheTtl)
+                .build(stripes::countByUserId);
+    }
+
+    /**
+     * Adds {@code value} to a random stripe of the user.
+     *
+     * @return false when the user has no stripes, so the caller credits the user row instead
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public boolean credit(Long userId, BigDecimal value) {
+        int count = stripeCounts.get(userId);
+        if (count == 0)
+            return false;
+        if (stripes.credit(userId, ThreadLocalRandom.current().nextInt(count), value) != 1)
+            return false;
+        // The cached user carries the sum of its stripes.
+        userRepository.evict(userId);
+        return true;
+    }
+
+    /**
+     * Creates the configured stripes for a merchant that doesn't have them yet. Does nothing for other users
+     * or when striping is disabled.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void stripe(User user) {
+        if (user.getUserType() != UserType.MERCHANT || merchantStripes < 2)
+            return;
+
+        int existing = stripes.countByUserId(user.getId());
+        for (int stripe = existing; stripe < merchantStripes; stripe++) {
+            stripes.save(new BalanceStripe(null, user.getId(), stripe, BigDecimal.ZERO));
+        }
+        stripeCounts.invalidate(user.getId());
+    }
+
+    /**
+     * Moves the balance of every stripe back into the user row and removes the stripes. The stripes are locked
+     * first, so credits racing with the collapse wait for it and then land on the user row.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void collapse(Long userId) {
+        List<BalanceStripe> locked = stripes.findForUpdate(userId);
+        if (locked.isEmpty())
+            return;
+
+        BigDecimal total = locked.stream().map(BalanceStripe::getBalance).reduce(BigDecimal.ZERO, BigDecimal::add);
+        stripes.deleteByUserId(userId);
+        stripeCounts.invalidate(userId);
+        if (total.signum() != 0)
+            userRepository.credit(userId, total);
+    }
+
+    /**
+     * Removes the stripes of a user being deleted.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void forget(Long userId) {
+        stripes.deleteByUserId(userId);
+        stripeCounts.invalidate(userId);
+    }
+
+    public int stripeCount(Long userId) {
+        return stripeCounts.get(userId);
+    }
+}
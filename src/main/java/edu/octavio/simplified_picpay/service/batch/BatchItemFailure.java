@@ -0,0 +1,9 @@
+package edu.octavio.simplified_picpay.service.batch;
+
+/**
+ * Why one item of a batch transfer was rejected.
+ *
+ * @param index position of the item in the request
+ */
+public record BatchItemFailure(int index, Long payeeId, String message) {
+}
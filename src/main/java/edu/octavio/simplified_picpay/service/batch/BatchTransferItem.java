@@ -0,0 +1,6 @@
+package edu.octavio.simplified_picpay.service.batch;
+
+import java.math.BigDecimal;
+
+public record BatchTransferItem(Long payeeId, BigDecimal value) {
+}
@@ -0,0 +1,173 @@
+package edu.octavio.simplified_picpay.service.batch;
+
+import edu.octavio.simplified_picpay.domain.model.Transaction;
+import edu.octavio.simplified_picpay.domain.model.User;
+import edu.octavio.simplified_picpay.domain.model.enums.UserType;
+import edu.octavio.simplified_picpay.domain.repository.TransactionRepository;
+import edu.octavio.simplified_picpay.domain.repository.UserRepository;
+import edu.octavio.simplified_picpay.service.authorization.TransferAuthorizationGuard;
+import edu.octavio.simplified_picpay.service.balance.BalanceStripeService;
+import edu.octavio.simplified_picpay.service.exception.BatchTransferException;
+import edu.octavio.simplified_picpay.service.exception.BusinessException;
+import edu.octavio.simplified_picpay.service.exception.NotFoundException;
+import edu.octavio.simplified_picpay.service.ledger.LedgerService;
+import edu.octavio.simplified_picpay.service.notification.TransferOutbox;
+import edu.octavio.simplified_picpay.service.retry.TransferRetryPolicy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static java.util.Optional.ofNullable;
+
+/**
+ * Pays many payees from one payer in a single transaction: every item is applied or none is. Unlike single
+ * transfers, the payer may be a merchant paying out.
+ * <p>
+ * The payer and the payees are loaded with one query, the payer is debited once for the whole batch and the
+ * transactions are inserted in JDBC batches. Balances are updated in ascending user id, the same order single
+ * transfers lock them in, so a batch and a transfer between the same accounts can't deadlock.
+ */
+@Service
+public class BatchTransferService {
+    private final TransactionRepository repository;
+    private final UserRepository userRepository;
+    private final BalanceStripeService balanceStripes;
+    private final LedgerService ledgerService;
+    private final TransferOutbox outbox;
+    private final TransactionTemplate transactionTemplate;
+    private final TransferRetryPolicy retryPolicy;
+    private final TransferAuthorizationGuard authorizationGuard;
+    private final int maxSize;
+
+    public BatchTransferService(TransactionRepository repository,
+                                UserRepository userRepository,
+                                BalanceStripeService balanceStripes,
+                                LedgerService ledgerService,
+                                TransferOutbox outbox,
+                                TransactionTemplate transactionTemplate,
+                                TransferRetryPolicy retryPolicy,
+                                TransferAuthorizationGuard authorizationGuard,
+                                @Value("${api.transaction.batch.max-size:1000}") int maxSize) {
+        this.repository = repository;
+        this.userRepository = userRepository;
+        this.balanceStripes = balanceStripes;
+        this.ledgerService = ledgerService;
+        this.outbox = outbox;
+        this.transactionTemplate = transactionTemplate;
+        this.retryPolicy = retryPolicy;
+        this.authorizationGuard = authorizationGuard;
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * @return the created transactions, in the order of the items
+     * @throws BatchTransferException when any item is invalid or its payee doesn't exist
+     */
+    public List<Transaction> transfer(Long payerId, List<BatchTransferItem> items) {
+        ofNullable(payerId).orElseThrow(() -> new BusinessException("Payer must not be null"));
+        if (items == null || items.isEmpty())
+            throw new BusinessException("Batch must have at least one item");
+        if (items.size() > maxSize)
+            throw new BusinessException("Batch too large", "Batch must have at most " + maxSize + " items");
+
+        List<BatchItemFailure> failures = validate(payerId, items);
+        if (!failures.isEmpty())
+            throw new BatchTransferException(failures);
+
+        // The batch is authorized as a whole, with no single payee, before any row is locked.
+        BigDecimal total = items.stream().map(BatchTransferItem::value).reduce(BigDecimal.ZERO, BigDecimal::add);
+        authorizationGuard.authorize(payerId, null, total);
+
+        return retryPolicy.execute("Batch transfer from " + payerId,
+                () -> transactionTemplate.execute(status -> apply(payerId, items)));
+    }
+
+    private static List<BatchItemFailure> validate(Long payerId, List<BatchTransferItem> items) {
+        List<BatchItemFailure> failures = new ArrayList<>();
+        for (int i = 0; i < items.size(); i++) {
+            BatchTransferItem item = items.get(i);
+            if (item == null || item.payeeId() == null)
+                failures.add(new BatchItemFailure(i, null, "Payee must not be null"));
+            else if (item.value() == null)
+                failures.add(new BatchItemFailure(i, item.payeeId(), "Transaction value must not be null"));
+            else if (item.value().signum() <= 0)
+                failures.add(new BatchItemFailure(i, item.payeeId(), "Transaction value must be positive"));
+            else if (payerId.equals(item.payeeId()))
+                failures.add(new BatchItemFailure(i, item.payeeId(), "payer id and payee id must be different"));
+        }
+        return failures;
+    }
+
+    private List<Transaction> apply(Long payerId, List<BatchTransferItem> items) {
+        Set<Long> ids = new HashSet<>();
+        ids.add(payerId);
+        items.forEach(item -> ids.add(item.payeeId()));
+        Map<Long, User> users = userRepository.findAllById(ids).stream()
+                .collect(Collectors.toMap(User::getId, Function.identity()));
+
+        User payer = ofNullable(users.get(payerId)).orElseThrow(NotFoundException::new);
+
+        List<BatchItemFailure> missing = new ArrayList<>();
+        for (int i = 0; i < items.size(); i++) {
+            if (!users.containsKey(items.get(i).payeeId()))
+                missing.add(new BatchItemFailure(i, items.get(i).payeeId(), "Payee not found"));
+        }
+        if (!missing.isEmpty())
+            throw new BatchTransferException(missing);
+
+        // One balance update per account, in ascending id. The payer's is a single debit of the whole batch.
+        Map<Long, BigDecimal> changes = new TreeMap<>();
+        for (BatchTransferItem item : items) {
+            changes.merge(item.payeeId(), item.value(), BigDecimal::add);
+            changes.merge(payerId, item.value().negate(), BigDecimal::add);
+        }
+        changes.forEach((userId, change) -> {
+            if (userId.equals(payerId))
+                debit(payer, change.negate());
+            else
+                credit(userId, change);
+        });
+
+        List<Transaction> transactions = new ArrayList<>(items.size());
+        for (BatchTransferItem item : items) {
+            Transaction transaction = new Transaction();
+            transaction.setTransactionValue(item.value());
+            transaction.setPayer(payer);
+            transaction.setPayee(users.get(item.payeeId()));
+            transactions.add(transaction);
+        }
+        List<Transaction> saved = repository.saveAll(transactions);
+        ledgerService.recordTransfers(saved);
+        outbox.record(saved);
+        return saved;
+    }
+
+    private void debit(User payer, BigDecimal total) {
+        if (payer.getUserType() != UserType.MERCHANT) {
+            if (userRepository.debit(payer.getId(), total) != 1)
+                throw new BusinessException("Payer doesn't have enough money");
+            return;
+        }
+        // Stripes only take credits, so the payout comes out of the user row once they're folded into it. They're
+        // locked here, at the merchant's place in the id order, where single transfers crediting them lock them too.
+        balanceStripes.collapse(payer.getId());
+        if (userRepository.payOut(payer.getId(), total) != 1)
+            throw new BusinessException("Payer doesn't have enough money");
+        balanceStripes.stripe(payer);
+    }
+
+    private void credit(Long payeeId, BigDecimal value) {
+        if (!balanceStripes.credit(payeeId, value) && userRepository.credit(payeeId, value) != 1)
+            throw new NotFoundException();
+    }
+}
@@ -0,0 +1,124 @@
+package edu.octavio.simplified_picpay.service.document;
+
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.stream.IntStream;
+
+/**
+ * Validates and normalizes CPF (11 digits) and CNPJ (14 characters, the first 12 may be letters) documents.
+ * <p>
+ * Both operations read the input once, ignoring anything that isn't an ASCII letter or digit, so formatted
+ * documents such as {@code 529.982.247-25} don't need to be normalized first. Validation allocates nothing:
+ * the check digit weights of both document types are kept in static tables and summed while reading.
+ */
+@Component
+public class DocumentValidator {
+    public static final int CPF_LENGTH = 11;
+    public static final int CNPJ_LENGTH = 14;
+
+    private static final int SKIP = -1;
+
+    // Value of each ASCII character in the check digit sums: digits are 0-9, letters are their code point minus '0'.
+    private static final int[] VALUES = new int[128];
+
+    // Weight of each position for the first and second check digits. Positions outside the sum weigh zero.
+    private static final int[] CPF_WEIGHTS_1 = {10, 9, 8, 7, 6, 5, 4, 3, 2, 0, 0, 0, 0, 0};
+    private static final int[] CPF_WEIGHTS_2 = {11, 10, 9, 8, 7, 6, 5, 4, 3, 2, 0, 0, 0, 0};
+    private static final int[] CNPJ_WEIGHTS_1 = {5, 4, 3, 2, 9, 8, 7, 6, 5, 4, 3, 2, 0, 0};
+    private static final int[] CNPJ_WEIGHTS_2 = {6, 5, 4, 3, 2, 9, 8, 7, 6, 5, 4, 3, 2, 0};
+
+    static {
+        Arrays.fill(VALUES, SKIP);
+        for (char c = '0'; c <= '9'; c++) VALUES[c] = c - '0';
+        for (char c = 'A'; c <= 'Z'; c++) VALUES[c] = c - '0';
+        for (char c = 'a'; c <= 'z'; c++) VALUES[c] = Character.toUpperCase(c) - '0';
+    }
+
+    /**
+     * Whether the document has the length and check digits of a CPF or a CNPJ. Any other length is invalid.
+     */
+    public boolean isValid(CharSequence document) {
+        if (document == null)
+            return false;
+
+        int position = 0;
+        int cpfSum1 = 0, cpfSum2 = 0, cnpjSum1 = 0, cnpjSum2 = 0;
+        int previous = 0, last = 0;
+        boolean hasLetter = false;
+
+        for (int i = 0, length = document.length(); i < length; i++) {
+            char c = document.charAt(i);
+            int value = c < VALUES.length ? VALUES[c] : SKIP;
+            if (value == SKIP)
+                continue;
+            if (position == CNPJ_LENGTH)
+                return false;
+
+            cpfSum1 += value * CPF_WEIGHTS_1[position];
+            cpfSum2 += value * CPF_WEIGHTS_2[position];
+            cnpjSum1 += value * CNPJ_WEIGHTS_1[position];
+            cnpjSum2 += value * CNPJ_WEIGHTS_2[position];
+            hasLetter |= value > 9;
+            previous = last;
+            last = value;
+            position++;
+        }
+
+        // The check digits themselves are always numeric.
+        if (previous > 9 || last > 9)
+            return false;
+        if (position == CPF_LENGTH)
+            return !hasLetter && checkDigit(cpfSum1) == previous && checkDigit(cpfSum2) == last;
+        if (position == CNPJ_LENGTH)
+            return checkDigit(cnpjSum1) == previous && checkDigit(cnpjSum2) == last;
+        return false;
+    }
+
+    /**
+     * Strips everything but ASCII letters and digits and upper-cases the letters. Returns the same string when it's
+     * already normalized.
+     */
+    public String normalize(CharSequence document) {
+        if (document == null)
+            return null;
+
+        int length = document.length();
+        char[] normalized = new char[length];
+        int size = 0;
+        boolean changed = false;
+        for (int i = 0; i < length; i++) {
+            char c = document.charAt(i);
+            if (c >= VALUES.length || VALUES[c] == SKIP) {
+                changed = true;
+            } else if (c >= 'a') {
+                normalized[size++] = (char) (c - ('a' - 'A'));
+                changed = true;
+            } else {
+                normalized[size++] = c;
+            }
+        }
+        return changed || !(document instanceof String) ? new String(normalized, 0, size) : (String) document;
+    }
+
+    /**
+     * Validates every document in parallel on the common fork-join pool. The result holds, at each index,
+     * whether the document at that index is valid.
+     */
+    public boolean[] validateAll(List<? extends CharSequence> documents) {
+        List<? extends CharSequence> indexed = documents instanceof RandomAccess ? documents : new ArrayList<>(documents);
+        boolean[] valid = new boolean[indexed.size()];
+        IntStream.range(0, valid.length)
+                .parallel()
+                .forEach(i -> valid[i] = isValid(indexed.get(i)));
+        return valid;
+    }
+
+    private static int checkDigit(int sum) {
+        int remainder = sum % 11;
+        return remainder < 2 ? 0 : 11 - remainder;
+    }
+}
@@ -0,0 +1,8 @@
+package edu.octavio.simplified_picpay.service.event;
+
+/**
+ * Published when a user is updated or deleted. {@code email} is the address the user had before the change,
+ * so anything cached under it can be dropped.
+ */
+public record UserChangedEvent(Long id, String email) {
+}
@@ -0,0 +1,23 @@
+package edu.octavio.simplified_picpay.service.exception;
+
+import java.io.Serial;
+import java.time.Duration;
+
+public class AuthorizerUnavailableException extends RuntimeException {
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    private final Duration retryAfter;
+
+    public AuthorizerUnavailableException(String message, Duration retryAfter) {
+        super(message);
+        this.retryAfter = retryAfter;
+    }
+
+    /**
+     * @return how long until the authorizer may be asked again
+     */
+    public Duration getRetryAfter() {
+        return retryAfter;
+    }
+}
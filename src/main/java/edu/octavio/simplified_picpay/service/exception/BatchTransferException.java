@@ -0,0 +1,25 @@
+package edu.octavio.simplified_picpay.service.exception;
+
+import edu.octavio.simplified_picpay.service.batch.BatchItemFailure;
+
+import java.io.Serial;
+import java.util.List;
+
+/**
+ * A batch transfer rejected because of some of its items. Nothing in the batch was applied.
+ */
+public class BatchTransferException extends BusinessException {
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    private final transient List<BatchItemFailure> failures;
+
+    public BatchTransferException(List<BatchItemFailure> failures) {
+        super("Invalid batch items", failures.size() + " batch items are invalid");
+        this.failures = List.copyOf(failures);
+    }
+
+    public List<BatchItemFailure> getFailures() {
+        return failures;
+    }
+}
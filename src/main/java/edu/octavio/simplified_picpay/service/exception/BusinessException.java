@@ -7,7 +7,21 @@ public class BusinessException extends RuntimeException {
     @Serial
     private static final long serialVersionUID = 1L;
 
+    private final String reason;
+
     public BusinessException(String message) {
+        this(message, message);
+    }
+
+    /**
+     * @param reason a fixed description of the broken rule, used to group errors; the message may carry request data
+     */
+    public BusinessException(String reason, String message) {
         super(message);
+        this.reason = reason;
+    }
+
+    public String getReason() {
+        return reason;
     }
 }
@@ -0,0 +1,12 @@
+package edu.octavio.simplified_picpay.service.exception;
+
+import java.io.Serial;
+
+public class QueueFullException extends RuntimeException {
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    public QueueFullException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,59 @@
+package edu.octavio.simplified_picpay.service.idempotency;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Bounded, TTL-evicted front for the idempotency keys stored on tb_transactions.
+ * <p>
+ * The first request with a key claims it with a future; repeats arriving while it runs wait on that future
+ * and repeats arriving later read the completed result, so neither reaches the database. The result is the
+ * transaction's view, a few hundred bytes, so a full cache of the default size holds some tens of megabytes.
+ * Repeats of an evicted key still get the original transaction, found through the unique key on the table.
+ */
+@Component
+public class IdempotencyCache {
+    private final Cache<String, CompletableFuture<IdempotentTransfer>> claims;
+
+    public IdempotencyCache(@Value("${api.transaction.idempotency.cache-size:100000}") long maximumSize,
+                            @Value("${api.transaction.idempotency.cache-ttl:PT10M}") Duration timeToLive) {
+        this.claims = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(timeToLive)
+                .build();
+    }
+
+    /**
+     * @return the future of the request that already holds the key, or null if {@code claim} now holds it
+     */
+    public CompletableFuture<IdempotentTransfer> claim(Long payerId, String key, CompletableFuture<IdempotentTransfer> claim) {
+        return claims.asMap().putIfAbsent(cacheKey(payerId, key), claim);
+    }
+
+    /**
+     * Forgets a claim whose request failed, so the next repeat runs the transfer again.
+     */
+    public void release(Long payerId, String key, CompletableFuture<IdempotentTransfer> claim) {
+        claims.asMap().remove(cacheKey(payerId, key), claim);
+    }
+
+    public static IdempotentTransfer await(CompletableFuture<IdempotentTransfer> claim) {
+        try {
+            return claim.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause)
+                throw cause;
+            throw e;
+        }
+    }
+
+    private static String cacheKey(Long payerId, String key) {
+        return payerId + ":" + key;
+    }
+}
@@ -0,0 +1,16 @@
+package edu.octavio.simplified_picpay.service.idempotency;
+
+import edu.octavio.simplified_picpay.domain.repository.projection.TransactionView;
+
+import java.math.BigDecimal;
+
+/**
+ * What is remembered about a transfer made with an Idempotency-Key: enough to recognise a repeat
+ * of the same request and to answer it with the original transaction.
+ */
+public record IdempotentTransfer(TransactionView transaction) {
+
+    public boolean matches(Long payeeId, BigDecimal value) {
+        return transaction.payeeId().equals(payeeId) && transaction.transactionValue().compareTo(value) == 0;
+    }
+}
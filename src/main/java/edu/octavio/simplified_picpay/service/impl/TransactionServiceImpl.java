@@ -2,25 +2,61 @@ package edu.octavio.simplified_picpay.service.impl;
 
 import edu.octavio.simplified_picpay.domain.model.Transaction;
 import edu.octavio.simplified_picpay.domain.model.User;
+import edu.octavio.simplified_picpay.domain.model.enums.TransactionDirection;
 import edu.octavio.simplified_picpay.domain.model.enums.UserType;
 import edu.octavio.simplified_picpay.domain.repository.TransactionRepository;
+import edu.octavio.simplified_picpay.domain.repository.UserRepository;
+import edu.octavio.simplified_picpay.domain.repository.projection.TransactionView;
+import edu.octavio.simplified_picpay.infra.database.ReplicaRoutingDataSource;
+import edu.octavio.simplified_picpay.infra.metrics.PaymentMetrics;
+import edu.octavio.simplified_picpay.service.TransactionCursor;
 import edu.octavio.simplified_picpay.service.TransactionService;
-import edu.octavio.simplified_picpay.service.UserService;
+import edu.octavio.simplified_picpay.service.authorization.TransferAuthorization;
+import edu.octavio.simplified_picpay.service.authorization.TransferAuthorizationGuard;
+import edu.octavio.simplified_picpay.service.balance.BalanceStripeService;
 import edu.octavio.simplified_picpay.service.exception.BusinessException;
 import edu.octavio.simplified_picpay.service.exception.NotFoundException;
+import edu.octavio.simplified_picpay.service.idempotency.IdempotencyCache;
+import edu.octavio.simplified_picpay.service.idempotency.IdempotentTransfer;
+import edu.octavio.simplified_picpay.service.ledger.LedgerService;
+import edu.octavio.simplified_picpay.service.notification.TransferOutbox;
+import edu.octavio.simplified_picpay.service.retry.TransferRetryPolicy;
 import lombok.AllArgsConstructor;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 import static java.util.Optional.ofNullable;
 
 @Service
 @AllArgsConstructor
 public class TransactionServiceImpl implements TransactionService {
+    private static final LocalDateTime HISTORY_START = LocalDateTime.of(1970, 1, 1, 0, 0);
+    private static final LocalDateTime HISTORY_END = LocalDateTime.of(9999, 12, 31, 0, 0);
+    private static final Comparator<TransactionView> NEWEST_FIRST =
+            Comparator.comparing(TransactionView::createdAt).thenComparing(TransactionView::id).reversed();
+
     private final TransactionRepository repository;
-    private final UserService userService;
+    private final UserRepository userRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final TransferRetryPolicy retryPolicy;
+    private final IdempotencyCache idempotencyCache;
+    private final PaymentMetrics metrics;
+    private final LedgerService ledgerService;
+    private final BalanceStripeService balanceStripes;
+    private final TransferOutbox outbox;
+    private final TransferAuthorizationGuard authorizationGuard;
 
     @Transactional(readOnly = true)
     @Override
@@ -34,30 +70,203 @@ public class TransactionServiceImpl implements TransactionService {
         return repository.findById(id).orElseThrow(NotFoundException::new);
     }
 
-    @Transactional
+    @Transactional(readOnly = true)
+    @Override
+    public TransactionView findViewById(Long id) {
+        return repository.findViewById(id).orElseThrow(NotFoundException::new);
+    }
+
+    @Transactional(readOnly = true)
+    @Override
+    public List<TransactionView> findPage(Long after, int size) {
+        return repository.findViewsAfter(ofNullable(after).orElse(0L), PageRequest.ofSize(size));
+    }
+
+    @Transactional(readOnly = true)
+    @Override
+    public void streamAll(Consumer<TransactionView> consumer) {
+        try (Stream<TransactionView> transactions = repository.streamViews()) {
+            transactions.forEach(consumer);
+        }
+    }
+
+    @Transactional(readOnly = true)
+    @Override
+    public List<TransactionView> findHistory(Long userId, TransactionDirection direction, LocalDateTime from, LocalDateTime to, TransactionCursor after, int size) {
+        LocalDateTime lowerBound = ofNullable(from).orElse(HISTORY_START);
+        // Without a cursor, the page starts right below 'to': (to, 0) excludes every row created at 'to' itself.
+        TransactionCursor before = ofNullable(after).orElseGet(() -> new TransactionCursor(ofNullable(to).orElse(HISTORY_END), 0L));
+        Pageable page = PageRequest.ofSize(size);
+
+        return switch (ofNullable(direction).orElse(TransactionDirection.ALL)) {
+            case OUT -> repository.findOutgoing(userId, lowerBound, before.createdAt(), before.id(), page);
+            case IN -> repository.findIncoming(userId, lowerBound, before.createdAt(), before.id(), page);
+            // An OR of both sides can't walk either index in order, so each side is read on its own and merged.
+            case ALL -> mergeNewestFirst(
+                    repository.findOutgoing(userId, lowerBound, before.createdAt(), before.id(), page),
+                    repository.findIncoming(userId, lowerBound, before.createdAt(), before.id(), page),
+                    size);
+        };
+    }
+
+    /**
+     * Merges two pages ordered by (createdAt, id) descending into the first {@code size} rows of both. A user is
+     * never both payer and payee of a transaction, so the pages don't overlap.
+     */
+    private static List<TransactionView> mergeNewestFirst(List<TransactionView> outgoing, List<TransactionView> incoming, int size) {
+        List<TransactionView> page = new ArrayList<>(Math.min(size, outgoing.size() + incoming.size()));
+        int out = 0;
+        int in = 0;
+        while (page.size() < size && (out < outgoing.size() || in < incoming.size())) {
+            if (in == incoming.size() || (out < outgoing.size() && NEWEST_FIRST.compare(outgoing.get(out), incoming.get(in)) <= 0))
+                page.add(outgoing.get(out++));
+            else
+                page.add(incoming.get(in++));
+        }
+        return page;
+    }
+
     @Override
     public Transaction create(Transaction transactionToCreate) {
         ofNullable(transactionToCreate).orElseThrow(() -> new BusinessException("Transaction to create must not be null"));
-        ofNullable(transactionToCreate.getTransactionValue()).orElseThrow(() -> new BusinessException("Transaction value must not be null"));
         ofNullable(transactionToCreate.getPayee()).orElseThrow(() -> new BusinessException("Payee must not be null"));
         ofNullable(transactionToCreate.getPayer()).orElseThrow(() -> new BusinessException("Payer must not be null"));
 
-        if (transactionToCreate.getPayer().getUserType() == UserType.MERCHANT)
-            throw new BusinessException("Payer type must not be merchant");
+        return transfer(transactionToCreate.getPayer().getId(), transactionToCreate.getPayee().getId(), transactionToCreate.getTransactionValue());
+    }
 
-        if (transactionToCreate.getPayer().getBalance().compareTo(transactionToCreate.getTransactionValue()) < 0)
-            throw new BusinessException("Payer doesn't have enough money");
+    @Override
+    public Transaction transfer(Long payerId, Long payeeId, BigDecimal value) {
+        validateTransfer(payerId, payeeId, value);
+        return applyAuthorized(authorizationGuard.authorize(payerId, payeeId, value));
+    }
 
-        User payer = transactionToCreate.getPayer();
-        User payee = transactionToCreate.getPayee();
+    @Override
+    public TransactionView transfer(Long payerId, Long payeeId, BigDecimal value, String idempotencyKey) {
+        if (idempotencyKey == null || idempotencyKey.isBlank())
+            return viewOf(transfer(payerId, payeeId, value));
+        validateIdempotencyKey(idempotencyKey);
+        validateTransfer(payerId, payeeId, value);
+        return transferIdempotently(payerId, payeeId, value, idempotencyKey);
+    }
 
-        payer.setBalance(payer.getBalance().subtract(transactionToCreate.getTransactionValue()));
-        payee.setBalance(payee.getBalance().add(transactionToCreate.getTransactionValue()));
+    @Override
+    public Transaction transfer(TransferAuthorization authorization) {
+        validateTransfer(authorization.payerId(), authorization.payeeId(), authorization.value());
+        return applyAuthorized(authorization);
+    }
+
+    private Transaction applyAuthorized(TransferAuthorization authorization) {
+        Long payerId = authorization.payerId();
+        Long payeeId = authorization.payeeId();
+        BigDecimal value = authorization.value();
+        // A conflicting writer rolls the whole attempt back, so every retry runs in a fresh transaction.
+        return metrics.recordTransfer(() -> retryPolicy.execute("Transfer from " + payerId + " to " + payeeId,
+                () -> transactionTemplate.execute(status -> applyTransfer(payerId, payeeId, value, null))));
+    }
+
+    private TransactionView transferIdempotently(Long payerId, Long payeeId, BigDecimal value, String idempotencyKey) {
+        CompletableFuture<IdempotentTransfer> claim = new CompletableFuture<>();
+        CompletableFuture<IdempotentTransfer> original = idempotencyCache.claim(payerId, idempotencyKey, claim);
+        if (original != null) {
+            IdempotentTransfer previous = IdempotencyCache.await(original);
+            verifySameRequest(previous, payeeId, value);
+            return previous.transaction();
+        }
+
+        TransactionView transaction;
+        try {
+            // Authorized only once the key is claimed, so a repeated request doesn't ask the authorizer again.
+            authorizationGuard.authorize(payerId, payeeId, value);
+            transaction = viewOf(metrics.recordTransfer(() -> transferOrRecover(payerId, payeeId, value, idempotencyKey)));
+        } catch (RuntimeException e) {
+            idempotencyCache.release(payerId, idempotencyKey, claim);
+            claim.completeExceptionally(e);
+            throw e;
+        }
+        IdempotentTransfer result = new IdempotentTransfer(transaction);
+        claim.complete(result);
+        verifySameRequest(result, payeeId, value);
+        return transaction;
+    }
+
+    private TransactionView viewOf(Transaction transaction) {
+        // Read right after the write, possibly by an async worker the replica router can't tie to the payer.
+        return ReplicaRoutingDataSource.onPrimary(() -> findViewById(transaction.getId()));
+    }
+
+    private Transaction transferOrRecover(Long payerId, Long payeeId, BigDecimal value, String idempotencyKey) {
+        try {
+            return retryPolicy.execute("Transfer from " + payerId + " to " + payeeId,
+                    () -> transactionTemplate.execute(status -> applyTransfer(payerId, payeeId, value, idempotencyKey)));
+        } catch (RuntimeException e) {
+            // The key may already have been used before this node's cache saw it (another node, or an evicted entry).
+            // The unique constraint rejects our insert, or the money is already gone; either way the original wins.
+            return repository.findByPayerIdAndIdempotencyKey(payerId, idempotencyKey).orElseThrow(() -> e);
+        }
+    }
+
+    @Override
+    public void validateTransfer(Long payerId, Long payeeId, BigDecimal value) {
+        ofNullable(value).orElseThrow(() -> new BusinessException("Transaction value must not be null"));
+        ofNullable(payeeId).orElseThrow(() -> new BusinessException("Payee must not be null"));
+        ofNullable(payerId).orElseThrow(() -> new BusinessException("Payer must not be null"));
 
-        userService.update(payer.getId(), payer);
-        userService.update(payee.getId(), payee);
+        if (value.signum() <= 0)
+            throw new BusinessException("Transaction value must be positive");
+        if (payerId.equals(payeeId))
+            throw new BusinessException("payer id and payee id must be different");
+    }
+
+    private void validateIdempotencyKey(String idempotencyKey) {
+        if (idempotencyKey.length() > Transaction.IDEMPOTENCY_KEY_MAX_LENGTH)
+            throw new BusinessException("Idempotency-Key must have at most " + Transaction.IDEMPOTENCY_KEY_MAX_LENGTH + " characters");
+    }
+
+    private void verifySameRequest(IdempotentTransfer previous, Long payeeId, BigDecimal value) {
+        if (!previous.matches(payeeId, value))
+            throw new BusinessException("Idempotency-Key was already used for a different transaction");
+    }
+
+    private Transaction applyTransfer(Long payerId, Long payeeId, BigDecimal value, String idempotencyKey) {
+        // Each side is a single conditional UPDATE. They run lower id first so two opposite
+        // transfers between the same accounts take the row locks in the same order.
+        if (payerId < payeeId) {
+            debit(payerId, value);
+            credit(payeeId, value);
+        } else {
+            credit(payeeId, value);
+            debit(payerId, value);
+        }
+
+        Transaction transaction = new Transaction();
+        transaction.setTransactionValue(value);
+        transaction.setPayer(userRepository.getReferenceById(payerId));
+        transaction.setPayee(userRepository.getReferenceById(payeeId));
+        transaction.setIdempotencyKey(idempotencyKey);
+
+        Transaction saved = repository.save(transaction);
+        ledgerService.recordTransfer(saved);
+        outbox.record(saved);
+        return saved;
+    }
+
+    private void debit(Long payerId, BigDecimal value) {
+        if (userRepository.debit(payerId, value) == 1)
+            return;
+
+        // Only the failure path pays for a read, to tell the caller why the debit didn't apply.
+        User payer = userRepository.findById(payerId).orElseThrow(NotFoundException::new);
+        if (payer.getUserType() == UserType.MERCHANT)
+            throw new BusinessException("Payer type must not be merchant");
+        throw new BusinessException("Payer doesn't have enough money");
+    }
 
-        return repository.save(transactionToCreate);
+    private void credit(Long payeeId, BigDecimal value) {
+        if (balanceStripes.credit(payeeId, value))
+            return;
+        if (userRepository.credit(payeeId, value) != 1)
+            throw new NotFoundException();
     }
 
     @Override
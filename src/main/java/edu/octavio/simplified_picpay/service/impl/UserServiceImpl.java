@@ -2,17 +2,33 @@ package edu.octavio.simplified_picpay.service.impl;
 
 import edu.octavio.simplified_picpay.domain.model.User;
 import edu.octavio.simplified_picpay.domain.repository.UserRepository;
+import edu.octavio.simplified_picpay.infra.metrics.PaymentMetrics;
 import edu.octavio.simplified_picpay.service.UserService;
+import edu.octavio.simplified_picpay.service.balance.BalanceStripeService;
+import edu.octavio.simplified_picpay.service.document.DocumentValidator;
+import edu.octavio.simplified_picpay.service.event.UserChangedEvent;
 import edu.octavio.simplified_picpay.service.exception.BusinessException;
 import edu.octavio.simplified_picpay.service.exception.NotFoundException;
+import edu.octavio.simplified_picpay.service.ledger.LedgerService;
+import edu.octavio.simplified_picpay.service.uniqueness.UserUniquenessFilter;
+import jakarta.persistence.CacheRetrieveMode;
+import jakarta.persistence.EntityManager;
 import lombok.AllArgsConstructor;
+import org.hibernate.exception.ConstraintViolationException;
+import org.hibernate.jpa.SpecHints;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 import static java.util.Optional.ofNullable;
 
@@ -20,6 +36,13 @@ import static java.util.Optional.ofNullable;
 @AllArgsConstructor
 public class UserServiceImpl implements UserService {
     private final UserRepository repository;
+    private final EntityManager entityManager;
+    private final ApplicationEventPublisher eventPublisher;
+    private final DocumentValidator documentValidator;
+    private final PaymentMetrics metrics;
+    private final LedgerService ledgerService;
+    private final BalanceStripeService balanceStripes;
+    private final UserUniquenessFilter uniquenessFilter;
 
     @Override
     @Transactional(readOnly = true)
@@ -33,6 +56,24 @@ public class UserServiceImpl implements UserService {
         return repository.findById(id).orElseThrow(NotFoundException::new);
     }
 
+    @Override
+    @Transactional(readOnly = true)
+    public List<User> findPage(Long after, int size) {
+        return repository.findByIdGreaterThanOrderByIdAsc(ofNullable(after).orElse(0L), Limit.of(size));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void streamAll(Consumer<User> consumer) {
+        try (Stream<User> users = repository.streamAll()) {
+            users.forEach(user -> {
+                consumer.accept(user);
+                // Keeps the persistence context empty, so memory stays flat however many rows are streamed.
+                entityManager.detach(user);
+            });
+        }
+    }
+
     @Override
     @Transactional
     public User create(User userToCreate) {
@@ -43,134 +84,133 @@ public class UserServiceImpl implements UserService {
         ofNullable(userToCreate.getPassword()).orElseThrow(() -> new BusinessException("User password must not be null"));
         ofNullable(userToCreate.getUserType()).orElseThrow(() -> new BusinessException("User type must not be null"));
 
-        if (repository.existsByEmail(userToCreate.getEmail()))
-            throw new BusinessException("The email already exists");
-        if (repository.existsByDocument(userToCreate.getDocument()))
-            throw new BusinessException("The document already exists");
+        userToCreate.setDocument(documentValidator.normalize(userToCreate.getDocument()));
 
-        userToCreate.setDocument(userToCreate.getDocument().replaceAll("[^a-zA-Z0-9]", "").toUpperCase());
-
-        if (!validateDocument(userToCreate.getDocument()))
+        if (!documentValidator.isValid(userToCreate.getDocument()))
             throw new BusinessException("Invalid document");
+        // Almost every signup is new on both counts, and the filter says so without a query.
+        if (uniquenessFilter.emailMightExist(userToCreate.getEmail()) && repository.existsByEmail(userToCreate.getEmail()))
+            throw new BusinessException("The email already exists");
+        if (uniquenessFilter.documentMightExist(userToCreate.getDocument()) && repository.existsByDocument(userToCreate.getDocument()))
+            throw new BusinessException("The document already exists");
 
         userToCreate.setBalance(ofNullable(userToCreate.getBalance()).orElse(BigDecimal.valueOf(0)));
-
-        return repository.save(userToCreate);
+        if (userToCreate.getBalance().signum() < 0)
+            throw new BusinessException("User balance must not be negative");
+
+        User created = saveUnique(userToCreate);
+        uniquenessFilter.added(created.getEmail(), created.getDocument());
+        ledgerService.recordOpening(created);
+        balanceStripes.stripe(created);
+        return created;
     }
 
     @Transactional
     @Override
     public User update(Long id, User userToUpdate) {
-        User dbUser = this.findById(id);
+        // The balance comparison and the type change below only see the user row, so stripes are folded into it first.
+        if (userToUpdate.getBalance() != null || userToUpdate.getUserType() != null)
+            balanceStripes.collapse(id);
+        // The balance delta below goes to the ledger, so it's computed from the row, never from the cache.
+        User dbUser = ofNullable(entityManager.find(User.class, id, Map.of(SpecHints.HINT_SPEC_CACHE_RETRIEVE_MODE, CacheRetrieveMode.BYPASS)))
+                .orElseThrow(NotFoundException::new);
         if (!dbUser.getId().equals(userToUpdate.getId())) {
             throw new BusinessException("Update IDs must be the same");
         }
+        String previousEmail = dbUser.getEmail();
+        String previousDocument = dbUser.getDocument();
 
         if (ofNullable(userToUpdate.getName()).isPresent() && !userToUpdate.getName().equals(dbUser.getName()))
             dbUser.setName(userToUpdate.getName());
         if (ofNullable(userToUpdate.getDocument()).isPresent() && !userToUpdate.getDocument().equals(dbUser.getDocument())) {
-            dbUser.setDocument(userToUpdate.getDocument().replaceAll("[^a-zA-Z0-9]", "").toUpperCase());
-            if (repository.existsByDocument(userToUpdate.getDocument()))
+            dbUser.setDocument(documentValidator.normalize(userToUpdate.getDocument()));
+            if (!dbUser.getDocument().equals(previousDocument)
+                    && uniquenessFilter.documentMightExist(dbUser.getDocument()) && repository.existsByDocument(dbUser.getDocument()))
                 throw new BusinessException("The document already exists");
-            if(!validateDocument(dbUser.getDocument()))
+            if (!documentValidator.isValid(dbUser.getDocument()))
                 throw new BusinessException("Invalid document");
         }
         if (ofNullable(userToUpdate.getEmail()).isPresent() && !userToUpdate.getEmail().equals(dbUser.getEmail())) {
-            if (repository.existsByEmail(userToUpdate.getEmail()))
+            if (uniquenessFilter.emailMightExist(userToUpdate.getEmail()) && repository.existsByEmail(userToUpdate.getEmail()))
                 throw new BusinessException("The email already exists");
             dbUser.setEmail(userToUpdate.getEmail());
         }
         if (ofNullable(userToUpdate.getPassword()).isPresent() && !userToUpdate.getPassword().equals(dbUser.getPassword()))
             dbUser.setPassword(userToUpdate.getPassword());
-        if (ofNullable(userToUpdate.getBalance()).isPresent() && userToUpdate.getBalance().compareTo(dbUser.getBalance()) != 0)
+        BigDecimal balanceDelta = BigDecimal.ZERO;
+        if (ofNullable(userToUpdate.getBalance()).isPresent() && userToUpdate.getBalance().signum() < 0)
+            throw new BusinessException("User balance must not be negative");
+        if (ofNullable(userToUpdate.getBalance()).isPresent() && userToUpdate.getBalance().compareTo(dbUser.getBalance()) != 0) {
+            balanceDelta = userToUpdate.getBalance().subtract(dbUser.getBalance());
             dbUser.setBalance(userToUpdate.getBalance());
+        }
         if (ofNullable(userToUpdate.getUserType()).isPresent() && !userToUpdate.getUserType().equals(dbUser.getUserType()))
             dbUser.setUserType(userToUpdate.getUserType());
 
-        return repository.save(dbUser);
+        User updatedUser = saveUnique(dbUser);
+        if (!updatedUser.getEmail().equals(previousEmail)) {
+            uniquenessFilter.removed(previousEmail, null);
+            uniquenessFilter.added(updatedUser.getEmail(), null);
+        }
+        if (!updatedUser.getDocument().equals(previousDocument)) {
+            uniquenessFilter.removed(null, previousDocument);
+            uniquenessFilter.added(null, updatedUser.getDocument());
+        }
+        ledgerService.recordAdjustment(updatedUser, balanceDelta);
+        balanceStripes.stripe(updatedUser);
+        eventPublisher.publishEvent(new UserChangedEvent(id, previousEmail));
+        return updatedUser;
     }
 
     @Transactional
     @Override
     public void delete(Long id) {
-        repository.delete(this.findById(id));
+        User user = this.findById(id);
+        ledgerService.forget(id);
+        balanceStripes.forget(id);
+        repository.delete(user);
+        uniquenessFilter.removed(user.getEmail(), user.getDocument());
+        eventPublisher.publishEvent(new UserChangedEvent(id, user.getEmail()));
     }
 
-    private boolean validateDocument(String document) {
-        int verifier1 = document.charAt(document.length() - 2) - 48;
-        int verifier2 = document.charAt(document.length() - 1) - 48;
-        if (document.length() == 14) {
-            // CNPJ
-            int[] multipliers1 = {5, 4, 3, 2, 9, 8, 7, 6, 5, 4, 3, 2};
-            int[] multipliers2 = {6, 5, 4, 3, 2, 9, 8, 7, 6, 5, 4, 3, 2};
-
-            int sum = 0;
-
-            for (int i = 0; i < 12; i++) {
-                sum += (document.charAt(i) - 48) * multipliers1[i];
-            }
-
-            if (sum % 11 >= 2) {
-                if (11 - (sum % 11) != verifier1)
-                    return false;
-            } else {
-                if (0 != verifier1)
-                    return false;
-            }
-
-            sum = 0;
-
-            for (int i = 0; i < 13; i++) {
-                sum += (document.charAt(i) - 48) * multipliers2[i];
-            }
-
-            if (sum % 11 >= 2) {
-                return 11 - (sum % 11) == verifier2;
-            } else {
-                return 0 == verifier2;
-            }
-        } else if (document.length() == 11) {
-            // CPF
-            int[] multipliers1 = {10, 9, 8, 7, 6, 5, 4, 3, 2};
-            int[] multipliers2 = {11, 10, 9, 8, 7, 6, 5, 4, 3, 2};
-
-            int sum = 0;
-
-            for (int i = 0; i < 9; i++) {
-                sum += (document.charAt(i) - 48) * multipliers1[i];
-            }
-
-            if (sum % 11 >= 2) {
-                if (11 - (sum % 11) != verifier1)
-                    return false;
-            } else {
-                if (0 != verifier1)
-                    return false;
-            }
-
-            sum = 0;
-
-            for (int i = 0; i < 10; i++) {
-                sum += (document.charAt(i) - 48) * multipliers2[i];
-            }
-
-            if (sum % 11 >= 2) {
-                return 11 - (sum % 11) == verifier2;
-            } else {
-                return 0 == verifier2;
-            }
+    /**
+     * Inserts or updates right away, so a duplicate email or document that got past the checks above (they race
+     * with other requests) is reported as such instead of failing the commit.
+     */
+    private User saveUnique(User user) {
+        try {
+            return repository.saveAndFlush(user);
+        } catch (DataIntegrityViolationException e) {
+            String constraint = e.getCause() instanceof ConstraintViolationException violation && violation.getConstraintName() != null
+                    ? violation.getConstraintName().toLowerCase(Locale.ROOT)
+                    : "";
+            if (constraint.contains("uk_users_email"))
+                throw new BusinessException("The email already exists");
+            if (constraint.contains("uk_users_document"))
+                throw new BusinessException("The document already exists");
+            throw e;
         }
-        return true;
+    }
+
+    @Transactional
+    @Override
+    public boolean updatePassword(Long id, String previousPassword, String password) {
+        return repository.updatePassword(id, previousPassword, password) == 1;
     }
 
     @Override
     public User findByEmail(String email) {
-        return repository.findByEmail(email).orElseThrow(NotFoundException::new);
+        return metrics.recordUserLookup(() -> repository.findByEmail(email)).orElseThrow(NotFoundException::new);
     }
 
     @Override
     public Optional<User> findByEmailOptional(String email) {
-        return repository.findByEmail(email);
+        return metrics.recordUserLookup(() -> repository.findByEmail(email));
+    }
+
+    @Override
+    public Optional<User> findCredentials(String email) {
+        return metrics.recordUserLookup(() -> repository.findCredentials(email));
     }
 
 }
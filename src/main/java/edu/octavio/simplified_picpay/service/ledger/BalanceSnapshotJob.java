@@ -0,0 +1,90 @@
+package edu.octavio.simplified_picpay.service.ledger;
+
+import edu.octavio.simplified_picpay.domain.model.BalanceSnapshot;
+import edu.octavio.simplified_picpay.domain.repository.BalanceSnapshotRepository;
+import edu.octavio.simplified_picpay.domain.repository.LedgerEntryRepository;
+import edu.octavio.simplified_picpay.domain.repository.projection.BalanceDelta;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static java.util.Optional.ofNullable;
+
+/**
+ * Folds new ledger entries into the balance snapshots, so reading a balance only sums the entries of the last
+ * interval however long the account history is.
+ * <p>
+ * Entry ids are handed out at insert time but become visible at commit, so the newest ids may still have older,
+ * uncommitted ones below them. A run therefore only goes up to the last entry created {@code safety-lag} ago,
+ * which must be longer than any transaction writing entries. Entries are folded in ascending id windows, one
+ * transaction each, and a snapshot only moves forward from where it stands, so an interrupted or repeated run
+ * never counts an entry twice.
+ */
+@Component
+public class BalanceSnapshotJob {
+    private static final Logger LOGGER = LoggerFactory.getLogger(BalanceSnapshotJob.class);
+
+    private final LedgerEntryRepository entries;
+    private final BalanceSnapshotRepository snapshots;
+    private final TransactionTemplate transactionTemplate;
+    private final Duration safetyLag;
+    private final long windowSize;
+
+    public BalanceSnapshotJob(LedgerEntryRepository entries, BalanceSnapshotRepository snapshots, TransactionTemplate transactionTemplate,
+                              @Value("${api.ledger.snapshot.safety-lag:PT30S}") Duration safetyLag,
+                              @Value("${api.ledger.snapshot.window-size:10000}") long windowSize) {
+        this.entries = entries;
+        this.snapshots = snapshots;
+        this.transactionTemplate = transactionTemplate;
+        this.safetyLag = safetyLag;
+        this.windowSize = windowSize;
+    }
+
+    @Scheduled(fixedDelayString = "${api.ledger.snapshot.interval:PT1M}", initialDelayString = "${api.ledger.snapshot.interval:PT1M}")
+    public void run() {
+        int updated = snapshot(LocalDateTime.now().minus(safetyLag));
+        if (updated > 0)
+            LOGGER.debug("Advanced {} balance snapshots", updated);
+    }
+
+    /**
+     * Folds every entry created before {@code before} into the snapshots.
+     *
+     * @return how many snapshot updates were made
+     */
+    public int snapshot(LocalDateTime before) {
+        Long upTo = entries.findLastIdBefore(before);
+        if (upTo == null)
+            return 0;
+
+        long from = ofNullable(snapshots.findLastEntryId()).orElse(0L);
+        int updated = 0;
+        while (from < upTo) {
+            long windowStart = from;
+            long windowEnd = Math.min(upTo, from + windowSize);
+            updated += transactionTemplate.execute(status -> fold(windowStart, windowEnd));
+            from = windowEnd;
+        }
+        return updated;
+    }
+
+    private int fold(long afterId, long upToId) {
+        List<BalanceDelta> deltas = entries.sumByUser(afterId, upToId);
+        for (BalanceDelta delta : deltas) {
+            if (snapshots.advance(delta.userId(), delta.amount(), afterId, upToId) == 0 && !snapshots.existsById(delta.userId())) {
+                // First snapshot of this user: it starts from all of their entries, not just this window's.
+                BigDecimal balance = ofNullable(entries.sumUpTo(delta.userId(), upToId)).orElse(BigDecimal.ZERO);
+                snapshots.save(new BalanceSnapshot(delta.userId(), balance, upToId));
+            }
+        }
+        return deltas.size();
+    }
+}
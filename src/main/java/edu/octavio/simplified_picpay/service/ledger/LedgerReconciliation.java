@@ -0,0 +1,94 @@
+package edu.octavio.simplified_picpay.service.ledger;
+
+import edu.octavio.simplified_picpay.domain.repository.LedgerEntryRepository;
+import edu.octavio.simplified_picpay.domain.repository.UserRepository;
+import edu.octavio.simplified_picpay.domain.repository.projection.BalanceMismatch;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Checks every user's balance against the sum of their ledger entries. Users are split in id ranges of
+ * {@code chunk-size}, each checked by one aggregate query, {@code parallelism} ranges at a time.
+ */
+@Component
+public class LedgerReconciliation {
+    private static final Logger LOGGER = LoggerFactory.getLogger(LedgerReconciliation.class);
+
+    private final LedgerEntryRepository entries;
+    private final UserRepository userRepository;
+    private final long chunkSize;
+    private final int parallelism;
+
+    private volatile ReconciliationReport lastReport;
+
+    public LedgerReconciliation(LedgerEntryRepository entries, UserRepository userRepository,
+                                @Value("${api.ledger.reconciliation.chunk-size:10000}") long chunkSize,
+                                @Value("${api.ledger.reconciliation.parallelism:4}") int parallelism) {
+        this.entries = entries;
+        this.userRepository = userRepository;
+        this.chunkSize = chunkSize;
+        this.parallelism = parallelism;
+    }
+
+    @Scheduled(cron = "${api.ledger.reconciliation.cron:0 0 3 * * *}")
+    public void run() {
+        reconcile();
+    }
+
+    public ReconciliationReport reconcile() {
+        long started = System.nanoTime();
+        Long minId = userRepository.findMinId();
+        Long maxId = userRepository.findMaxId();
+
+        List<BalanceMismatch> mismatches = new ArrayList<>();
+        int chunks = 0;
+        if (minId != null) {
+            AtomicInteger threads = new AtomicInteger();
+            ExecutorService executor = Executors.newFixedThreadPool(parallelism,
+                    runnable -> new Thread(runnable, "ledger-reconciliation-" + threads.incrementAndGet()));
+            try {
+                List<Future<List<BalanceMismatch>>> results = new ArrayList<>();
+                for (long from = minId; from <= maxId; from += chunkSize) {
+                    long chunkStart = from;
+                    results.add(executor.submit(() -> entries.findMismatches(chunkStart, chunkStart + chunkSize)));
+                }
+                chunks = results.size();
+                for (Future<List<BalanceMismatch>> result : results) {
+                    mismatches.addAll(result.get());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while reconciling the ledger", e);
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("Ledger reconciliation failed", e.getCause());
+            } finally {
+                executor.shutdownNow();
+            }
+        }
+
+        ReconciliationReport report = new ReconciliationReport(LocalDateTime.now(), chunks, List.copyOf(mismatches),
+                Duration.ofNanos(System.nanoTime() - started));
+        mismatches.forEach(mismatch -> LOGGER.error("Balance of user {} is {} but its ledger adds up to {}",
+                mismatch.userId(), mismatch.balance(), mismatch.ledgerBalance()));
+        LOGGER.info("Reconciled the ledger in {} chunks and {} ms, {} mismatches", chunks, report.duration().toMillis(), mismatches.size());
+        lastReport = report;
+        return report;
+    }
+
+    public ReconciliationReport lastReport() {
+        return lastReport;
+    }
+}
@@ -0,0 +1,94 @@
+package edu.octavio.simplified_picpay.service.ledger;
+
+import edu.octavio.simplified_picpay.domain.model.BalanceSnapshot;
+import edu.octavio.simplified_picpay.domain.model.LedgerEntry;
+import edu.octavio.simplified_picpay.domain.model.Transaction;
+import edu.octavio.simplified_picpay.domain.model.User;
+import edu.octavio.simplified_picpay.domain.model.enums.LedgerEntryType;
+import edu.octavio.simplified_picpay.domain.repository.BalanceSnapshotRepository;
+import edu.octavio.simplified_picpay.domain.repository.LedgerEntryRepository;
+import edu.octavio.simplified_picpay.domain.repository.UserRepository;
+import edu.octavio.simplified_picpay.service.exception.NotFoundException;
+import lombok.AllArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Writes the ledger entries behind every balance change and reads balances back from it.
+ * Writes join the caller's transaction, so an entry exists exactly when the balance change it records does.
+ */
+@Service
+@AllArgsConstructor
+public class LedgerService {
+    private final LedgerEntryRepository entries;
+    private final BalanceSnapshotRepository snapshots;
+    private final UserRepository userRepository;
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordTransfer(Transaction transaction) {
+        recordTransfers(List.of(transaction));
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordTransfers(List<Transaction> transactions) {
+        List<LedgerEntry> transferEntries = new ArrayList<>(transactions.size() * 2);
+        for (Transaction transaction : transactions) {
+            BigDecimal value = transaction.getTransactionValue();
+            transferEntries.add(entry(transaction.getPayer(), transaction, value.negate(), LedgerEntryType.DEBIT));
+            transferEntries.add(entry(transaction.getPayee(), transaction, value, LedgerEntryType.CREDIT));
+        }
+        entries.saveAll(transferEntries);
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordOpening(User user) {
+        if (user.getBalance() != null && user.getBalance().signum() != 0)
+            entries.save(entry(user, null, user.getBalance(), LedgerEntryType.OPENING));
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordAdjustment(User user, BigDecimal delta) {
+        if (delta.signum() != 0)
+            entries.save(entry(user, null, delta, LedgerEntryType.ADJUSTMENT));
+    }
+
+    /**
+     * Balance according to the ledger: the user's snapshot plus the entries written after it. The snapshot is
+     * read first, so one advanced meanwhile can't make an entry count twice.
+     */
+    @Transactional(readOnly = true)
+    public BigDecimal balanceOf(Long userId) {
+        if (!userRepository.existsById(userId))
+            throw new NotFoundException();
+
+        Optional<BalanceSnapshot> snapshot = snapshots.findById(userId);
+        BigDecimal balance = snapshot.map(BalanceSnapshot::getBalance).orElse(BigDecimal.ZERO);
+        Long lastEntryId = snapshot.map(BalanceSnapshot::getLastEntryId).orElse(0L);
+        BigDecimal delta = entries.sumAfter(userId, lastEntryId);
+        return delta == null ? balance : balance.add(delta);
+    }
+
+    /**
+     * Removes the ledger of a user being deleted. Users who took part in a transaction can't be deleted anyway.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void forget(Long userId) {
+        entries.deleteByUserId(userId);
+        snapshots.deleteById(userId);
+    }
+
+    private static LedgerEntry entry(User user, Transaction transaction, BigDecimal amount, LedgerEntryType type) {
+        LedgerEntry entry = new LedgerEntry();
+        entry.setUser(user);
+        entry.setTransaction(transaction);
+        entry.setAmount(amount);
+        entry.setType(type);
+        return entry;
+    }
+}
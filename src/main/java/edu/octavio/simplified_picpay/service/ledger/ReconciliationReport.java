@@ -0,0 +1,10 @@
+package edu.octavio.simplified_picpay.service.ledger;
+
+import edu.octavio.simplified_picpay.domain.repository.projection.BalanceMismatch;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+public record ReconciliationReport(LocalDateTime finishedAt, int chunks, List<BalanceMismatch> mismatches, Duration duration) {
+}
@@ -0,0 +1,21 @@
+package edu.octavio.simplified_picpay.service.notification;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Notifier that only logs, until a real notification service is plugged in.
+ */
+@Component
+@ConditionalOnProperty(name = "api.notification.notifier", havingValue = "log", matchIfMissing = true)
+public class LoggingTransferNotifier implements TransferNotifier {
+    private static final Logger LOGGER = LoggerFactory.getLogger(LoggingTransferNotifier.class);
+
+    @Override
+    public void notify(TransferNotification notification) {
+        LOGGER.info("User {} received {} from user {} (transaction {})",
+                notification.payeeId(), notification.value(), notification.payerId(), notification.transactionId());
+    }
+}
@@ -0,0 +1,137 @@
+package edu.octavio.simplified_picpay.service.notification;
+
+import edu.octavio.simplified_picpay.domain.model.OutboxMessage;
+import edu.octavio.simplified_picpay.domain.repository.OutboxMessageRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Delivers the transfer notifications queued by {@link TransferOutbox}, away from the transfer's commit path.
+ * <p>
+ * Each round claims up to {@code batch-size} due messages with {@code FOR UPDATE SKIP LOCKED} and pushes their
+ * next attempt {@code lease} into the future before committing, so the notifier is called without holding a
+ * transaction or any lock, and a dispatcher that dies mid-delivery only delays its messages until the lease ends.
+ * Delivered messages are deleted. Failed ones are retried with exponential backoff and jitter, up to
+ * {@code max-attempts}; after that they're kept with no next attempt, for someone to look at.
+ * <p>
+ * Delivery is at least once: a slow notifier may outlive its lease and see the message again.
+ */
+@Component
+public class OutboxDispatcher {
+    private static final Logger LOGGER = LoggerFactory.getLogger(OutboxDispatcher.class);
+    private static final int MAX_ERROR_LENGTH = 1000;
+
+    private final OutboxMessageRepository repository;
+    private final TransferNotifier notifier;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+    private final Duration lease;
+    private final int maxAttempts;
+    private final Duration backoff;
+    private final Duration maxBackoff;
+
+    private final LongAdder delivered = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder abandoned = new LongAdder();
+
+    public OutboxDispatcher(OutboxMessageRepository repository, TransferNotifier notifier, TransactionTemplate transactionTemplate,
+                            @Value("${api.notification.outbox.batch-size:100}") int batchSize,
+                            @Value("${api.notification.outbox.lease:PT1M}") Duration lease,
+                            @Value("${api.notification.outbox.max-attempts:10}") int maxAttempts,
+                            @Value("${api.notification.outbox.backoff:PT1S}") Duration backoff,
+                            @Value("${api.notification.outbox.max-backoff:PT1H}") Duration maxBackoff) {
+        if (maxAttempts < 1)
+            throw new IllegalArgumentException("Outbox max attempts must be at least 1");
+        this.repository = repository;
+        this.notifier = notifier;
+        this.transactionTemplate = transactionTemplate;
+        this.batchSize = batchSize;
+        this.lease = lease;
+        this.maxAttempts = maxAttempts;
+        this.backoff = backoff;
+        this.maxBackoff = maxBackoff;
+    }
+
+    @Scheduled(fixedDelayString = "${api.notification.outbox.poll-interval:PT1S}")
+    public void run() {
+        // A full batch means more are probably due, so keep going rather than wait for the next poll.
+        while (dispatch() == batchSize) {
+            LOGGER.debug("Outbox batch full, dispatching the next one");
+        }
+    }
+
+    /**
+     * Claims and delivers one batch of due messages.
+     *
+     * @return how many messages were claimed
+     */
+    public int dispatch() {
+        List<OutboxMessage> claimed = transactionTemplate.execute(status -> claim(LocalDateTime.now()));
+        for (OutboxMessage message : claimed) {
+            deliver(message);
+        }
+        return claimed.size();
+    }
+
+    private List<OutboxMessage> claim(LocalDateTime now) {
+        List<OutboxMessage> due = repository.findDueForUpdate(now, batchSize);
+        // Flushed at commit; until the lease ends, other dispatchers don't see these as due.
+        due.forEach(message -> message.setNextAttemptAt(now.plus(lease)));
+        return due;
+    }
+
+    private void deliver(OutboxMessage message) {
+        try {
+            notifier.notify(new TransferNotification(message));
+        } catch (RuntimeException e) {
+            failures.increment();
+            int attempts = message.getAttempts() + 1;
+            LocalDateTime nextAttemptAt = attempts < maxAttempts ? LocalDateTime.now().plus(backoff(attempts)) : null;
+            if (nextAttemptAt == null) {
+                abandoned.increment();
+                LOGGER.error("Gave up notifying transaction {} after {} attempts", message.getTransactionId(), attempts, e);
+            } else {
+                LOGGER.warn("Notifying transaction {} failed, attempt {} of {}: {}", message.getTransactionId(), attempts, maxAttempts, e.toString());
+            }
+            transactionTemplate.executeWithoutResult(status -> repository.reschedule(message.getId(), attempts, nextAttemptAt, truncate(e.toString())));
+            return;
+        }
+        transactionTemplate.executeWithoutResult(status -> repository.deleteDelivered(message.getId()));
+        delivered.increment();
+    }
+
+    public long delivered() {
+        return delivered.sum();
+    }
+
+    public long failures() {
+        return failures.sum();
+    }
+
+    public long abandoned() {
+        return abandoned.sum();
+    }
+
+    /**
+     * Half of the exponential delay is fixed and half random, so retries spread out but never come right back.
+     */
+    private Duration backoff(int attempts) {
+        long ceiling = Math.min(maxBackoff.toMillis(), backoff.toMillis() << Math.min(attempts - 1, 30));
+        long half = ceiling / 2;
+        return Duration.ofMillis(half + ThreadLocalRandom.current().nextLong(ceiling - half + 1));
+    }
+
+    private static String truncate(String error) {
+        return error.length() <= MAX_ERROR_LENGTH ? error : error.substring(0, MAX_ERROR_LENGTH);
+    }
+}
@@ -0,0 +1,13 @@
+package edu.octavio.simplified_picpay.service.notification;
+
+import edu.octavio.simplified_picpay.domain.model.OutboxMessage;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+public record TransferNotification(Long transactionId, Long payerId, Long payeeId, BigDecimal value, LocalDateTime createdAt) {
+
+    public TransferNotification(OutboxMessage message) {
+        this(message.getTransactionId(), message.getPayerId(), message.getPayeeId(), message.getTransactionValue(), message.getCreatedAt());
+    }
+}
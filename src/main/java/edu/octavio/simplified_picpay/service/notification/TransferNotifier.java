@@ -0,0 +1,13 @@
+package edu.octavio.simplified_picpay.service.notification;
+
+/**
+ * Tells the payee about a completed transfer. Called outside of any transaction, possibly more than once for the
+ * same transfer, so implementations should be idempotent on {@link TransferNotification#transactionId()}.
+ */
+public interface TransferNotifier {
+
+    /**
+     * @throws RuntimeException when the notification wasn't delivered, so it's retried later
+     */
+    void notify(TransferNotification notification);
+}
@@ -0,0 +1,45 @@
+package edu.octavio.simplified_picpay.service.notification;
+
+import edu.octavio.simplified_picpay.domain.model.OutboxMessage;
+import edu.octavio.simplified_picpay.domain.model.Transaction;
+import edu.octavio.simplified_picpay.domain.repository.OutboxMessageRepository;
+import lombok.AllArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Queues the notification of transfers in the transaction that applies them, so a notification exists exactly
+ * when its transfer committed. {@link OutboxDispatcher} delivers them afterwards.
+ */
+@Service
+@AllArgsConstructor
+public class TransferOutbox {
+    private final OutboxMessageRepository repository;
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void record(Transaction transaction) {
+        record(List.of(transaction));
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void record(List<Transaction> transactions) {
+        LocalDateTime now = LocalDateTime.now();
+        repository.saveAll(transactions.stream().map(transaction -> message(transaction, now)).toList());
+    }
+
+    private static OutboxMessage message(Transaction transaction, LocalDateTime now) {
+        OutboxMessage message = new OutboxMessage();
+        message.setTransactionId(transaction.getId());
+        message.setPayerId(transaction.getPayer().getId());
+        message.setPayeeId(transaction.getPayee().getId());
+        message.setTransactionValue(transaction.getTransactionValue());
+        message.setCreatedAt(transaction.getCreatedAt() != null ? transaction.getCreatedAt() : now);
+        message.setAttempts(0);
+        message.setNextAttemptAt(now);
+        return message;
+    }
+}
@@ -0,0 +1,84 @@
+package edu.octavio.simplified_picpay.service.retry;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Re-runs a unit of work that failed because of a concurrent writer (stale version, lock timeout or deadlock).
+ * The work must open its own transaction, so every attempt starts from a clean state. When it's called inside
+ * an existing transaction instead, the work runs once: a conflict has already doomed the caller's transaction.
+ * Backoff is exponential with full jitter, so colliding transfers don't retry in lockstep.
+ */
+@Component
+public class TransferRetryPolicy {
+    private static final Logger LOGGER = LoggerFactory.getLogger(TransferRetryPolicy.class);
+
+    private final int maxAttempts;
+    private final long backoffMillis;
+    private final long maxBackoffMillis;
+
+    private final LongAdder attempts = new LongAdder();
+    private final LongAdder conflicts = new LongAdder();
+    private final LongAdder retries = new LongAdder();
+    private final LongAdder exhausted = new LongAdder();
+
+    public TransferRetryPolicy(@Value("${api.transaction.retry.max-attempts:4}") int maxAttempts,
+                               @Value("${api.transaction.retry.backoff-millis:5}") long backoffMillis,
+                               @Value("${api.transaction.retry.max-backoff-millis:200}") long maxBackoffMillis) {
+        if (maxAttempts < 1)
+            throw new IllegalArgumentException("Retry max attempts must be at least 1");
+        this.maxAttempts = maxAttempts;
+        this.backoffMillis = backoffMillis;
+        this.maxBackoffMillis = maxBackoffMillis;
+    }
+
+    public <T> T execute(String operation, Supplier<T> work) {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            attempts.increment();
+            return work.get();
+        }
+
+        for (int attempt = 1; ; attempt++) {
+            attempts.increment();
+            try {
+                return work.get();
+            } catch (ConcurrencyFailureException e) {
+                conflicts.increment();
+                if (attempt >= maxAttempts) {
+                    exhausted.increment();
+                    LOGGER.warn("{} gave up after {} conflicting attempts", operation, attempt);
+                    throw e;
+                }
+                retries.increment();
+                pause(attempt);
+            }
+        }
+    }
+
+    public TransferRetryStats stats() {
+        long attemptCount = attempts.sum();
+        long conflictCount = conflicts.sum();
+        double conflictRate = attemptCount == 0 ? 0 : (double) conflictCount / attemptCount;
+        return new TransferRetryStats(attemptCount, conflictCount, retries.sum(), exhausted.sum(), conflictRate);
+    }
+
+    private void pause(int attempt) {
+        long ceiling = Math.min(maxBackoffMillis, backoffMillis << Math.min(attempt - 1, 20));
+        if (ceiling <= 0)
+            return;
+        try {
+            Thread.sleep(ThreadLocalRandom.current().nextLong(ceiling + 1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting to retry", e);
+        }
+    }
+}
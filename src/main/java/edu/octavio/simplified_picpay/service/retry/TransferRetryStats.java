@@ -0,0 +1,4 @@
+package edu.octavio.simplified_picpay.service.retry;
+
+public record TransferRetryStats(long attempts, long conflicts, long retries, long exhausted, double conflictRate) {
+}
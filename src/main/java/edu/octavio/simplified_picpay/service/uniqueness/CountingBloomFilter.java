@@ -0,0 +1,120 @@
+package edu.octavio.simplified_picpay.service.uniqueness;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bloom filter with 4-bit counters instead of bits, so values can be removed as well as added. A counter that reaches
+ * 15 stays there: it can't tell how many values went past it any more, so removals leave it alone and it only ever
+ * answers "maybe". Safe for concurrent use without locks.
+ */
+final class CountingBloomFilter {
+    private static final int COUNTERS_PER_WORD = Long.SIZE / 4;
+    private static final long MAX_COUNT = 15;
+
+    private final AtomicLongArray words;
+    private final long counters;
+    private final int hashes;
+
+    private CountingBloomFilter(long counters, int hashes) {
+        this.words = new AtomicLongArray(Math.toIntExact((counters + COUNTERS_PER_WORD - 1) / COUNTERS_PER_WORD));
+        this.counters = counters;
+        this.hashes = hashes;
+    }
+
+    /**
+     * Sized so that, holding {@code expectedValues}, about {@code falsePositiveRate} of absent values are reported as
+     * maybe present.
+     */
+    static CountingBloomFilter create(long expectedValues, double falsePositiveRate) {
+        if (expectedValues < 1)
+            throw new IllegalArgumentException("Expected values must be at least 1");
+        if (!(falsePositiveRate > 0 && falsePositiveRate < 1))
+            throw new IllegalArgumentException("False positive rate must be between 0 and 1");
+        long counters = Math.max(COUNTERS_PER_WORD, (long) Math.ceil(-expectedValues * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2))));
+        int hashes = Math.max(1, (int) Math.round((double) counters / expectedValues * Math.log(2)));
+        return new CountingBloomFilter(counters, hashes);
+    }
+
+    void add(String value) {
+        long hash = hash(value);
+        for (int i = 0; i < hashes; i++) {
+            update(index(hash, i), 1);
+        }
+    }
+
+    /**
+     * Must only be given values that were added, or it may forget others.
+     */
+    void remove(String value) {
+        long hash = hash(value);
+        for (int i = 0; i < hashes; i++) {
+            update(index(hash, i), -1);
+        }
+    }
+
+    boolean mightContain(String value) {
+        long hash = hash(value);
+        for (int i = 0; i < hashes; i++) {
+            if (count(index(hash, i)) == 0)
+                return false;
+        }
+        return true;
+    }
+
+    long counters() {
+        return counters;
+    }
+
+    int hashes() {
+        return hashes;
+    }
+
+    private long count(long index) {
+        int shift = shift(index);
+        return (words.get(word(index)) >>> shift) & MAX_COUNT;
+    }
+
+    private void update(long index, int delta) {
+        int word = word(index);
+        int shift = shift(index);
+        while (true) {
+            long current = words.get(word);
+            long count = (current >>> shift) & MAX_COUNT;
+            if (count == MAX_COUNT || (delta < 0 && count == 0))
+                return;
+            long updated = (current & ~(MAX_COUNT << shift)) | ((count + delta) << shift);
+            if (words.compareAndSet(word, current, updated))
+                return;
+        }
+    }
+
+    private static int word(long index) {
+        return (int) (index / COUNTERS_PER_WORD);
+    }
+
+    private static int shift(long index) {
+        return (int) (index % COUNTERS_PER_WORD) * 4;
+    }
+
+    // Double hashing: the i-th index is h1 + i * h2, both halves taken from one 64-bit hash.
+    private long index(long hash, int i) {
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32) | 1;
+        return Math.floorMod(h1 + (long) i * h2, counters);
+    }
+
+    // FNV-1a over the chars, then the MurmurHash3 finalizer so every input bit reaches every output bit.
+    private static long hash(String value) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < value.length(); i++) {
+            hash ^= value.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
@@ -0,0 +1,173 @@
+package edu.octavio.simplified_picpay.service.uniqueness;
+
+import edu.octavio.simplified_picpay.domain.repository.UserRepository;
+import edu.octavio.simplified_picpay.domain.repository.projection.UserKeys;
+import edu.octavio.simplified_picpay.infra.database.ReplicaRoutingDataSource;
+import edu.octavio.simplified_picpay.service.document.DocumentValidator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+/**
+ * Remembers which emails and documents are taken in two counting Bloom filters, so that registering a new user (almost
+ * always with a new email and document) doesn't have to ask the database whether they exist. "No" is definite, "maybe"
+ * still goes to the database, and the unique constraints remain the final check.
+ * <p>
+ * The filters are built at startup by streaming {@code tb_users}, and follow creates, updates and deletes once they
+ * commit. Until the first build completes, everything is a maybe. A rebuild (e.g. after users were written without
+ * going through the application) fills new filters while the current ones keep answering, then swaps them.
+ */
+@Service
+public class UserUniquenessFilter {
+    private static final Logger LOGGER = LoggerFactory.getLogger(UserUniquenessFilter.class);
+
+    private record Filters(CountingBloomFilter emails, CountingBloomFilter documents) {
+    }
+
+    private final UserRepository repository;
+    private final DocumentValidator documentValidator;
+    private final TransactionTemplate readOnlyTransaction;
+    private final long expectedUsers;
+    private final double falsePositiveRate;
+    private final AtomicBoolean rebuilding = new AtomicBoolean();
+
+    private volatile Filters current;
+    private volatile Filters building;
+
+    public UserUniquenessFilter(UserRepository repository,
+                                DocumentValidator documentValidator,
+                                TransactionTemplate transactionTemplate,
+                                @Value("${api.user.uniqueness-filter.expected-users:1000000}") long expectedUsers,
+                                @Value("${api.user.uniqueness-filter.false-positive-rate:0.01}") double falsePositiveRate) {
+        this.repository = repository;
+        this.documentValidator = documentValidator;
+        this.readOnlyTransaction = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        this.readOnlyTransaction.setReadOnly(true);
+        this.expectedUsers = expectedUsers;
+        this.falsePositiveRate = falsePositiveRate;
+        // Fails at startup rather than at the first build.
+        CountingBloomFilter.create(expectedUsers, falsePositiveRate);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        rebuild();
+    }
+
+    /**
+     * Rebuilds the filters from {@code tb_users}.
+     *
+     * @return false when a rebuild was already running, which this one then doesn't repeat
+     */
+    public boolean rebuild() {
+        if (!rebuilding.compareAndSet(false, true))
+            return false;
+        try {
+            // Sized for twice the current users, so the false positive rate holds while the table grows.
+            long size = Math.max(expectedUsers, 2 * repository.count());
+            Filters filters = new Filters(CountingBloomFilter.create(size, falsePositiveRate), CountingBloomFilter.create(size, falsePositiveRate));
+            // Set before reading, so users committed while the table is read are added either way.
+            building = filters;
+            // A lagging replica would miss users committed just before, and "no" for them would skip the check.
+            long count = ReplicaRoutingDataSource.onPrimary(() -> readOnlyTransaction.execute(status -> {
+                try (Stream<UserKeys> keys = repository.streamKeys()) {
+                    return keys.peek(key -> add(filters, key.email(), key.document())).count();
+                }
+            }));
+            current = filters;
+            LOGGER.info("Uniqueness filters built from {} users, {} counters and {} hashes each",
+                    count, filters.emails().counters(), filters.emails().hashes());
+            return true;
+        } finally {
+            building = null;
+            rebuilding.set(false);
+        }
+    }
+
+    public boolean isReady() {
+        return current != null;
+    }
+
+    /**
+     * @return false only when no user has this email
+     */
+    public boolean emailMightExist(String email) {
+        Filters filters = current;
+        return filters == null || filters.emails().mightContain(normalizeEmail(email));
+    }
+
+    /**
+     * @return false only when no user has this document
+     */
+    public boolean documentMightExist(String document) {
+        Filters filters = current;
+        return filters == null || filters.documents().mightContain(documentValidator.normalize(document));
+    }
+
+    /**
+     * Adds the email and document once the current transaction commits. Only committed users may be removed later,
+     * so a rolled back create must not be counted.
+     */
+    public void added(String email, String document) {
+        afterCommit(() -> {
+            Filters filters = current;
+            if (filters != null)
+                add(filters, email, document);
+            Filters next = building;
+            if (next != null && next != filters)
+                add(next, email, document);
+        });
+    }
+
+    /**
+     * Removes the email and document once the current transaction commits.
+     */
+    public void removed(String email, String document) {
+        afterCommit(() -> {
+            // Filters being built may not have read this user yet, and removing it from them could make them forget
+            // another one. It stays there as a maybe until the next rebuild.
+            Filters filters = current;
+            if (filters != null && filters != building) {
+                if (email != null)
+                    filters.emails().remove(normalizeEmail(email));
+                if (document != null)
+                    filters.documents().remove(documentValidator.normalize(document));
+            }
+        });
+    }
+
+    private void add(Filters filters, String email, String document) {
+        if (email != null)
+            filters.emails().add(normalizeEmail(email));
+        if (document != null)
+            filters.documents().add(documentValidator.normalize(document));
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    // Only ever makes the filter answer "maybe" more often: the unique constraint itself is case-sensitive.
+    private static String normalizeEmail(String email) {
+        return email.trim().toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,63 @@
+-- Schema of the entities when the migrations took over. Only Postgres databases predate it and are baselined.
+create sequence tb_users_seq start with 1 increment by 50;
+create sequence tb_transactions_seq start with 1 increment by 50;
+
+create table tb_users (
+    id        bigint not null,
+    name      varchar(255),
+    document  varchar(255),
+    email     varchar(255),
+    password  varchar(255),
+    balance   numeric(13, 2),
+    user_type varchar(255) check (user_type in ('COMMON', 'MERCHANT')),
+    version   bigint,
+    constraint pk_users primary key (id),
+    constraint uk_users_document unique (document),
+    constraint uk_users_email unique (email)
+);
+create index idx_email on tb_users (email);
+
+create table tb_transactions (
+    id                bigint not null,
+    transaction_value numeric(38, 2),
+    payer_id          bigint,
+    payee_id          bigint,
+    created_at        timestamp(6),
+    idempotency_key   varchar(255),
+    constraint pk_transactions primary key (id),
+    constraint uk_transactions_payer_idempotency_key unique (payer_id, idempotency_key),
+    constraint fk_transactions_payer foreign key (payer_id) references tb_users (id),
+    constraint fk_transactions_payee foreign key (payee_id) references tb_users (id)
+);
+create index idx_transactions_payer_created_at on tb_transactions (payer_id, created_at);
+create index idx_transactions_payee_created_at on tb_transactions (payee_id, created_at);
+
+create table tb_ledger_entries (
+    id             bigint generated by default as identity,
+    user_id        bigint         not null,
+    transaction_id bigint,
+    amount         numeric(13, 2) not null,
+    type           varchar(255)   not null check (type in ('DEBIT', 'CREDIT', 'OPENING', 'ADJUSTMENT')),
+    created_at     timestamp(6),
+    constraint pk_ledger_entries primary key (id),
+    constraint fk_ledger_entries_user foreign key (user_id) references tb_users (id),
+    constraint fk_ledger_entries_transaction foreign key (transaction_id) references tb_transactions (id)
+);
+create index idx_ledger_entries_user_id on tb_ledger_entries (user_id, id);
+create index idx_ledger_entries_created_at on tb_ledger_entries (created_at);
+
+create table tb_balance_snapshots (
+    user_id       bigint         not null,
+    balance       numeric(13, 2) not null,
+    last_entry_id bigint         not null,
+    constraint pk_balance_snapshots primary key (user_id)
+);
+
+create table tb_balance_stripes (
+    id      bigint generated by default as identity,
+    user_id bigint         not null,
+    stripe  integer        not null,
+    balance numeric(13, 2) not null,
+    constraint pk_balance_stripes primary key (id),
+    constraint uk_balance_stripes_user_id_stripe unique (user_id, stripe)
+);
@@ -0,0 +1,6 @@
+-- Debits are conditional on the balance covering them, so these only ever stop a bug from overdrawing an account.
+alter table tb_users add constraint ck_users_balance_not_negative check (balance >= 0);
+alter table tb_balance_stripes add constraint ck_balance_stripes_balance_not_negative check (balance >= 0);
+
+-- The unique constraint already indexes email.
+drop index idx_email;
@@ -0,0 +1,5 @@
+-- History pages order by (created_at, id), so the id belongs in the index too.
+drop index idx_transactions_payer_created_at;
+drop index idx_transactions_payee_created_at;
+create index idx_transactions_payer_created_at on tb_transactions (payer_id, created_at, id);
+create index idx_transactions_payee_created_at on tb_transactions (payee_id, created_at, id);
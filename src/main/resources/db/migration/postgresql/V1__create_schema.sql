@@ -0,0 +1,26 @@
+-- Schema as Hibernate generated it from the entities before the migrations took over, with IDENTITY ids. Existing
+-- databases are baselined at this version; the following versions bring both them and new ones to the current schema.
+create table tb_users (
+    id        bigint generated by default as identity,
+    name      varchar(255),
+    document  varchar(255),
+    email     varchar(255),
+    password  varchar(255),
+    balance   numeric(13, 2),
+    user_type varchar(255) check (user_type in ('COMMON', 'MERCHANT')),
+    constraint pk_users primary key (id),
+    constraint uk_users_document unique (document),
+    constraint uk_users_email unique (email)
+);
+create index idx_email on tb_users (email);
+
+create table tb_transactions (
+    id                bigint generated by default as identity,
+    transaction_value numeric(38, 2),
+    payer_id          bigint,
+    payee_id          bigint,
+    created_at        timestamp(6),
+    constraint pk_transactions primary key (id),
+    constraint fk_transactions_payer foreign key (payer_id) references tb_users (id),
+    constraint fk_transactions_payee foreign key (payee_id) references tb_users (id)
+);
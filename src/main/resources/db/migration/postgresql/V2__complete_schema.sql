@@ -0,0 +1,43 @@
+-- Tables and columns the entities gained after the baseline: optimistic locking of users, idempotency keys, the
+-- ledger with its balance snapshots, merchant balance stripes, and the indexes behind the transaction history.
+alter table tb_users add column version bigint;
+update tb_users set version = 0;
+
+alter table tb_transactions add column idempotency_key varchar(255);
+alter table tb_transactions add constraint uk_transactions_payer_idempotency_key unique (payer_id, idempotency_key);
+create index idx_transactions_payer_created_at on tb_transactions (payer_id, created_at);
+create index idx_transactions_payee_created_at on tb_transactions (payee_id, created_at);
+
+create table tb_ledger_entries (
+    id             bigint generated by default as identity,
+    user_id        bigint         not null,
+    transaction_id bigint,
+    amount         numeric(13, 2) not null,
+    type           varchar(255)   not null check (type in ('DEBIT', 'CREDIT', 'OPENING', 'ADJUSTMENT')),
+    created_at     timestamp(6),
+    constraint pk_ledger_entries primary key (id),
+    constraint fk_ledger_entries_user foreign key (user_id) references tb_users (id),
+    constraint fk_ledger_entries_transaction foreign key (transaction_id) references tb_transactions (id)
+);
+create index idx_ledger_entries_user_id on tb_ledger_entries (user_id, id);
+create index idx_ledger_entries_created_at on tb_ledger_entries (created_at);
+-- Balances are kept as they are, so each existing user opens the ledger with theirs, as LedgerService.recordOpening
+-- does for a new one. Transfers made before the ledger aren't replayed into it.
+insert into tb_ledger_entries (user_id, transaction_id, amount, type, created_at)
+select id, null, balance, 'OPENING', localtimestamp from tb_users where balance is not null and balance <> 0;
+
+create table tb_balance_snapshots (
+    user_id       bigint         not null,
+    balance       numeric(13, 2) not null,
+    last_entry_id bigint         not null,
+    constraint pk_balance_snapshots primary key (user_id)
+);
+
+create table tb_balance_stripes (
+    id      bigint generated by default as identity,
+    user_id bigint         not null,
+    stripe  integer        not null,
+    balance numeric(13, 2) not null,
+    constraint pk_balance_stripes primary key (id),
+    constraint uk_balance_stripes_user_id_stripe unique (user_id, stripe)
+);
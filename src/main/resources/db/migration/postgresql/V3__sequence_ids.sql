@@ -0,0 +1,9 @@
+-- The entities now take their ids from pooled sequences instead of IDENTITY columns. Nodes of the previous version keep
+-- using the IDENTITY defaults during the rollout of a baselined database, so the sequences start far enough past the
+-- current maximum for both ranges not to meet, and the defaults stay, unused once the rollout is over. Hibernate takes
+-- blocks of 50 ids per nextval, ending at the value returned. Runs before version 5, which recreates tb_transactions
+-- without the IDENTITY default.
+create sequence tb_users_seq increment by 50;
+create sequence tb_transactions_seq increment by 50;
+select setval('tb_users_seq', (select coalesce(max(id), 0) + 1000000 from tb_users));
+select setval('tb_transactions_seq', (select coalesce(max(id), 0) + 1000000 from tb_transactions));
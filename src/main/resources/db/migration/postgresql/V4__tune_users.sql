@@ -0,0 +1,24 @@
+-- Debits are conditional on the balance covering them, so these only ever stop a bug from overdrawing an account.
+alter table tb_users add constraint ck_users_balance_not_negative check (balance >= 0);
+alter table tb_balance_stripes add constraint ck_balance_stripes_balance_not_negative check (balance >= 0);
+
+-- Every transfer rewrites two user rows. Free space on the page lets Postgres keep the new version on the same page,
+-- and since no indexed column changes, the update skips the indexes entirely (HOT update). Stripes take nothing but
+-- such updates. Only pages written from now on keep the space; VACUUM FULL or pg_repack applies it to the rest.
+alter table tb_users set (fillfactor = 80);
+alter table tb_balance_stripes set (fillfactor = 50);
+
+-- existsByEmail and existsByDocument only read the id, so with it included they're index-only scans. findByEmail
+-- reads the whole row anyway and only needs the key. Databases created by Hibernate have generated constraint
+-- names, hence the lookup by table.
+do $$
+declare
+    c record;
+begin
+    for c in select conname from pg_constraint where conrelid = 'tb_users'::regclass and contype = 'u' loop
+        execute format('alter table tb_users drop constraint %I', c.conname);
+    end loop;
+end $$;
+drop index if exists idx_email;
+create unique index uk_users_email on tb_users (email) include (id);
+create unique index uk_users_document on tb_users (document) include (id);
@@ -0,0 +1,82 @@
+-- Partitions tb_transactions by created_at month. History pages only touch the months they cover, and old months
+-- can be detached or dropped whole instead of deleted row by row.
+
+alter table tb_transactions rename to tb_transactions_unpartitioned;
+
+-- A foreign key to a partitioned table must cover the partition key, and ledger entries only know the transaction id.
+do $$
+declare
+    c record;
+begin
+    for c in select conname, conrelid::regclass as referencing from pg_constraint
+             where confrelid = 'tb_transactions_unpartitioned'::regclass and contype = 'f' loop
+        execute format('alter table %s drop constraint %I', c.referencing, c.conname);
+    end loop;
+end $$;
+
+create table tb_transactions (
+    id                bigint       not null,
+    transaction_value numeric(38, 2),
+    payer_id          bigint,
+    payee_id          bigint,
+    created_at        timestamp(6) not null,
+    idempotency_key   varchar(255),
+    constraint pk_transactions_partitioned primary key (id, created_at),
+    constraint fk_transactions_partitioned_payer foreign key (payer_id) references tb_users (id),
+    constraint fk_transactions_partitioned_payee foreign key (payee_id) references tb_users (id)
+) partition by range (created_at);
+
+-- Creates the partition holding the month of the given day, if missing. TransactionPartitionJob keeps a few months ahead.
+create function create_transactions_partition(day date) returns void language plpgsql as $$
+declare
+    first_day date := date_trunc('month', day);
+begin
+    execute format('create table if not exists %I partition of tb_transactions for values from (%L) to (%L)',
+                   'tb_transactions_' || to_char(first_day, 'YYYY_MM'), first_day, (first_day + interval '1 month')::date);
+end $$;
+
+do $$
+declare
+    month timestamp;
+begin
+    for month in select generate_series(
+            date_trunc('month', coalesce((select min(created_at) from tb_transactions_unpartitioned), now())),
+            date_trunc('month', now()) + interval '3 months',
+            interval '1 month') loop
+        perform create_transactions_partition(month::date);
+    end loop;
+end $$;
+
+-- Catches rows when the job fell behind. A month can't get its own partition while the default holds rows of it.
+create table tb_transactions_default partition of tb_transactions default;
+
+-- A unique constraint on a partitioned table must include the partition key too, so (payer_id, idempotency_key)
+-- uniqueness moves to its own table. The trigger claims the key in the same statement as the insert, so a repeated
+-- key still fails the insert with a unique violation, as TransactionServiceImpl expects.
+create table tb_transaction_idempotency_keys (
+    payer_id        bigint       not null,
+    idempotency_key varchar(255) not null,
+    transaction_id  bigint       not null,
+    constraint pk_transaction_idempotency_keys primary key (payer_id, idempotency_key)
+);
+
+create function claim_transaction_idempotency_key() returns trigger language plpgsql as $$
+begin
+    insert into tb_transaction_idempotency_keys (payer_id, idempotency_key, transaction_id)
+    values (new.payer_id, new.idempotency_key, new.id);
+    return null;
+end $$;
+
+create trigger trg_transactions_idempotency_key after insert on tb_transactions
+    for each row when (new.idempotency_key is not null) execute function claim_transaction_idempotency_key();
+
+insert into tb_transactions (id, transaction_value, payer_id, payee_id, created_at, idempotency_key)
+select id, transaction_value, payer_id, payee_id, created_at, idempotency_key from tb_transactions_unpartitioned;
+
+drop table tb_transactions_unpartitioned;
+
+-- History pages walk (created_at, id) for one participant and read the other side and the value, so the scan never
+-- visits the table. The recovery lookup of an idempotency key only concerns the few rows that have one.
+create index idx_transactions_payer_created_at on tb_transactions (payer_id, created_at, id) include (payee_id, transaction_value);
+create index idx_transactions_payee_created_at on tb_transactions (payee_id, created_at, id) include (payer_id, transaction_value);
+create index idx_transactions_payer_idempotency_key on tb_transactions (payer_id, idempotency_key) where idempotency_key is not null;
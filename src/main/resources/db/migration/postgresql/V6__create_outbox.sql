@@ -0,0 +1,16 @@
+-- Transfer notifications waiting for OutboxDispatcher. Rows live from the transfer's commit until delivery.
+create sequence tb_outbox_seq start with 1 increment by 50;
+
+create table tb_outbox (
+    id                bigint         not null,
+    transaction_id    bigint         not null,
+    payer_id          bigint         not null,
+    payee_id          bigint         not null,
+    transaction_value numeric(38, 2) not null,
+    created_at        timestamp(6)   not null,
+    attempts          integer        not null,
+    next_attempt_at   timestamp(6),
+    last_error        varchar(1000),
+    constraint pk_outbox primary key (id)
+);
+create index idx_outbox_next_attempt_at on tb_outbox (next_attempt_at);
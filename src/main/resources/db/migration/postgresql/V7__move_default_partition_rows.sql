@@ -0,0 +1,24 @@
+-- A month can't get its own partition while tb_transactions_default holds rows of it, which happens when the job fell
+-- behind. Those rows now move into the new partition: it's filled as a plain table, so the idempotency key trigger
+-- doesn't claim their keys a second time, and attached once the default no longer has them.
+create or replace function create_transactions_partition(day date) returns void language plpgsql as $$
+declare
+    first_day      date := date_trunc('month', day);
+    next_day       date := (first_day + interval '1 month')::date;
+    partition_name text := 'tb_transactions_' || to_char(first_day, 'YYYY_MM');
+begin
+    if to_regclass(partition_name) is not null then
+        return;
+    end if;
+    if not exists (select 1 from tb_transactions_default where created_at >= first_day and created_at < next_day) then
+        execute format('create table if not exists %I partition of tb_transactions for values from (%L) to (%L)',
+                       partition_name, first_day, next_day);
+        return;
+    end if;
+
+    execute format('create table %I (like tb_transactions including defaults)', partition_name);
+    execute format('with moved as (delete from tb_transactions_default where created_at >= %L and created_at < %L returning *) '
+                   || 'insert into %I select * from moved', first_day, next_day, partition_name);
+    execute format('alter table tb_transactions attach partition %I for values from (%L) to (%L)',
+                   partition_name, first_day, next_day);
+end $$;
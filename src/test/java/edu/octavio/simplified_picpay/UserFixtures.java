@@ -0,0 +1,56 @@
+package edu.octavio.simplified_picpay;
+
+import edu.octavio.simplified_picpay.domain.model.User;
+import edu.octavio.simplified_picpay.domain.model.enums.UserType;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+public final class UserFixtures {
+
+    private UserFixtures() {
+    }
+
+    public static User newUser(UserType userType, BigDecimal balance) {
+        User user = new User();
+        String suffix = UUID.randomUUID().toString();
+        user.setName("User " + suffix);
+        user.setEmail(suffix + "@example.com");
+        user.setDocument(randomCpf());
+        user.setPassword("secret");
+        user.setBalance(balance);
+        user.setUserType(userType);
+        return user;
+    }
+
+    public static String randomCpf() {
+        return cpf(ThreadLocalRandom.current().nextInt(1_000_000_000));
+    }
+
+    /**
+     * @return the valid CPF whose first nine digits are {@code base}, so distinct bases below 10^9 never collide
+     */
+    public static String cpf(long base) {
+        int[] digits = new int[11];
+        for (int i = 8; i >= 0; i--, base /= 10) {
+            digits[i] = (int) (base % 10);
+        }
+        digits[9] = cpfVerifier(digits, 9);
+        digits[10] = cpfVerifier(digits, 10);
+
+        StringBuilder cpf = new StringBuilder(11);
+        for (int digit : digits) {
+            cpf.append(digit);
+        }
+        return cpf.toString();
+    }
+
+    private static int cpfVerifier(int[] digits, int length) {
+        int sum = 0;
+        for (int i = 0; i < length; i++) {
+            sum += digits[i] * (length + 1 - i);
+        }
+        return sum % 11 < 2 ? 0 : 11 - sum % 11;
+    }
+}
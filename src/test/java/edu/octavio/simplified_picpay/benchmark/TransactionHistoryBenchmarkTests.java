@@ -0,0 +1,108 @@
+package edu.octavio.simplified_picpay.benchmark;
+
+import edu.octavio.simplified_picpay.domain.model.enums.TransactionDirection;
+import edu.octavio.simplified_picpay.service.TransactionService;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Measures GET /transaction/me page latency while tb_transactions grows.
+ * <p>
+ * Run with {@code mvn test -Pbenchmark}. Table sizes come from {@code -Dbenchmark.history.sizes}
+ * (default 10000,100000,1000000). The in-memory database keeps every row and both history indexes on the heap, so
+ * 10000000 rows needs several GB of it: {@code -Dbenchmark.history.sizes=10000,100000,1000000,10000000
+ * -DargLine=-Xmx8g}.
+ */
+@Tag("benchmark")
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:picpay_history_benchmark",
+        "spring.jpa.show-sql=false"
+})
+@ActiveProfiles(profiles = "dev")
+class TransactionHistoryBenchmarkTests {
+    private static final Logger LOGGER = LoggerFactory.getLogger(TransactionHistoryBenchmarkTests.class);
+    private static final int USERS = 1_000;
+    private static final int PAGE_SIZE = 50;
+    private static final int WARMUP_QUERIES = 200;
+    private static final int MEASURED_QUERIES = 1_000;
+    private static final int INSERT_BATCH = 10_000;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private TransactionService transactionService;
+
+    @Test
+    void historyLatencyStaysFlatAsTheTableGrows() {
+        long[] sizes = Arrays.stream(System.getProperty("benchmark.history.sizes", "10000,100000,1000000").split(","))
+                .mapToLong(Long::parseLong)
+                .toArray();
+        List<Long> userIds = seedUsers();
+        Long userId = userIds.get(0);
+
+        LOGGER.info(String.format("%12s %10s %12s %12s %12s", "rows", "direction", "p50 (us)", "p99 (us)", "max (us)"));
+        long rows = 0;
+        for (long size : sizes) {
+            rows = seedTransactions(userIds, rows, size);
+            for (TransactionDirection direction : TransactionDirection.values()) {
+                long[] latencies = measure(userId, direction);
+                LOGGER.info(String.format("%12d %10s %12d %12d %12d", rows, direction,
+                        latencies[latencies.length / 2] / 1_000,
+                        latencies[latencies.length * 99 / 100] / 1_000,
+                        latencies[latencies.length - 1] / 1_000));
+            }
+        }
+    }
+
+    private long[] measure(Long userId, TransactionDirection direction) {
+        for (int i = 0; i < WARMUP_QUERIES; i++) {
+            transactionService.findHistory(userId, direction, null, null, null, PAGE_SIZE);
+        }
+        long[] latencies = new long[MEASURED_QUERIES];
+        for (int i = 0; i < MEASURED_QUERIES; i++) {
+            long start = System.nanoTime();
+            transactionService.findHistory(userId, direction, null, null, null, PAGE_SIZE);
+            latencies[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(latencies);
+        return latencies;
+    }
+
+    private List<Long> seedUsers() {
+        List<Object[]> users = new ArrayList<>();
+        for (int i = 0; i < USERS; i++) {
+            users.add(new Object[]{"Benchmark " + i, "BENCH" + i, "benchmark" + i + "@example.com", "secret", BigDecimal.ZERO, "COMMON"});
+        }
+        jdbcTemplate.batchUpdate("insert into tb_users (id, name, document, email, password, balance, user_type, version) values (next value for tb_users_seq, ?, ?, ?, ?, ?, ?, 0)", users);
+        return jdbcTemplate.queryForList("select id from tb_users where document like 'BENCH%' order by id", Long.class);
+    }
+
+    private long seedTransactions(List<Long> userIds, long from, long to) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        LocalDateTime start = LocalDateTime.now().minusYears(1);
+        for (long row = from; row < to; row += INSERT_BATCH) {
+            List<Object[]> batch = new ArrayList<>(INSERT_BATCH);
+            for (long i = row; i < Math.min(row + INSERT_BATCH, to); i++) {
+                int payer = random.nextInt(USERS);
+                int payee = (payer + 1 + random.nextInt(USERS - 1)) % USERS;
+                batch.add(new Object[]{BigDecimal.ONE, userIds.get(payer), userIds.get(payee), Timestamp.valueOf(start.plusSeconds(i))});
+            }
+            jdbcTemplate.batchUpdate("insert into tb_transactions (id, transaction_value, payer_id, payee_id, created_at) values (next value for tb_transactions_seq, ?, ?, ?, ?)", batch);
+        }
+        return to;
+    }
+}
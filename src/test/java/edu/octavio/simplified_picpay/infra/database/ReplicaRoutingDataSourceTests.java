@@ -0,0 +1,107 @@
+package edu.octavio.simplified_picpay.infra.database;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+class ReplicaRoutingDataSourceTests {
+    private final AtomicReference<Object> caller = new AtomicReference<>();
+    private JdbcTemplate replicaJdbc;
+    private ReplicaLagMonitor lagMonitor;
+    private JdbcTemplate jdbc;
+    private TransactionTemplate readOnly;
+    private TransactionTemplate readWrite;
+
+    @BeforeEach
+    void setUp() {
+        DriverManagerDataSource primary = database("primary");
+        DriverManagerDataSource replica = database("replica");
+        replicaJdbc = new JdbcTemplate(replica);
+        replicaJdbc.execute("create table tb_replica_lag (seconds double)");
+        replicaJdbc.update("insert into tb_replica_lag values (0)");
+
+        lagMonitor = new ReplicaLagMonitor(replica, "select seconds from tb_replica_lag", Duration.ofSeconds(5), Duration.ofSeconds(1));
+        lagMonitor.check();
+        var routing = new ReplicaRoutingDataSource(primary, replica, lagMonitor, caller::get, Duration.ofMinutes(1));
+        var dataSource = new LazyConnectionDataSourceProxy(routing);
+
+        jdbc = new JdbcTemplate(dataSource);
+        var transactionManager = new DataSourceTransactionManager(dataSource);
+        readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+        readWrite = new TransactionTemplate(transactionManager);
+    }
+
+    @Test
+    void sendsReadOnlyTransactionsToTheReplica() {
+        assertEquals("replica", readOnly.execute(status -> origin()));
+        assertEquals("primary", readWrite.execute(status -> origin()));
+        assertEquals("primary", origin());
+    }
+
+    @Test
+    void readsFromThePrimaryWhileTheReplicaLagsOrIsUnreachable() {
+        replicaJdbc.update("update tb_replica_lag set seconds = 6");
+        lagMonitor.check();
+        assertFalse(lagMonitor.isReplicaUsable());
+        assertEquals("primary", readOnly.execute(status -> origin()));
+
+        replicaJdbc.update("update tb_replica_lag set seconds = 4");
+        lagMonitor.check();
+        assertEquals("replica", readOnly.execute(status -> origin()));
+
+        replicaJdbc.execute("drop table tb_replica_lag");
+        lagMonitor.check();
+        assertEquals(Double.NaN, lagMonitor.lagSeconds());
+        assertEquals("primary", readOnly.execute(status -> origin()));
+    }
+
+    @Test
+    void readsItsOwnWritesFromThePrimary() {
+        caller.set(1L);
+        assertEquals("replica", readOnly.execute(status -> origin()));
+
+        readWrite.executeWithoutResult(status -> jdbc.update("update tb_origin set name = name"));
+        assertEquals("primary", readOnly.execute(status -> origin()));
+
+        // Other callers haven't written anything, and a rolled back write doesn't count.
+        caller.set(2L);
+        assertEquals("replica", readOnly.execute(status -> origin()));
+        readWrite.executeWithoutResult(status -> {
+            jdbc.update("update tb_origin set name = name");
+            status.setRollbackOnly();
+        });
+        assertEquals("replica", readOnly.execute(status -> origin()));
+    }
+
+    @Test
+    void readsFromThePrimaryWhenAskedWithoutACaller() {
+        assertEquals("replica", readOnly.execute(status -> origin()));
+        assertEquals("primary", ReplicaRoutingDataSource.onPrimary(() -> readOnly.execute(status -> origin())));
+        assertEquals("primary", ReplicaRoutingDataSource.onPrimary(() -> ReplicaRoutingDataSource.onPrimary(() -> readOnly.execute(status -> origin()))));
+        assertEquals("replica", readOnly.execute(status -> origin()));
+    }
+
+    private String origin() {
+        return jdbc.queryForObject("select name from tb_origin", String.class);
+    }
+
+    private static DriverManagerDataSource database(String name) {
+        var dataSource = new DriverManagerDataSource("jdbc:h2:mem:" + name + "-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1", "sa", "");
+        var jdbc = new JdbcTemplate(dataSource);
+        jdbc.execute("create table tb_origin (name varchar(16))");
+        jdbc.update("insert into tb_origin values (?)", name);
+        return dataSource;
+    }
+}
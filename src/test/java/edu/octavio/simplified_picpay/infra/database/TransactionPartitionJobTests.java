@@ -0,0 +1,50 @@
+package edu.octavio.simplified_picpay.infra.database;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class TransactionPartitionJobTests {
+    private JdbcTemplate jdbc;
+
+    @BeforeEach
+    void setUp() {
+        jdbc = new JdbcTemplate(new DriverManagerDataSource("jdbc:h2:mem:partitions-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1", "sa", ""));
+        jdbc.execute("create alias create_transactions_partition for '" + Partitions.class.getName() + ".create'");
+        Partitions.created.clear();
+        Partitions.failing = null;
+    }
+
+    @Test
+    void keepsGoingWhenAMonthCantBeCreated() {
+        LocalDate month = LocalDate.now().withDayOfMonth(1);
+        Partitions.failing = month;
+
+        assertDoesNotThrow(() -> new TransactionPartitionJob(jdbc, 2).run());
+
+        assertEquals(List.of(month.plusMonths(1), month.plusMonths(2)), Partitions.created);
+    }
+
+    /**
+     * Stands in for the Postgres function, which fails the same way while the default partition holds rows it can't move.
+     */
+    public static class Partitions {
+        static final List<LocalDate> created = new CopyOnWriteArrayList<>();
+        static volatile LocalDate failing;
+
+        public static void create(LocalDate day) {
+            if (day.equals(failing))
+                throw new IllegalStateException("updated partition constraint for default partition would be violated");
+            created.add(day);
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package edu.octavio.simplified_picpay.infra.security;
+
+import edu.octavio.simplified_picpay.infra.metrics.PaymentMetrics;
+import edu.octavio.simplified_picpay.service.exception.QueueFullException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PasswordHasherTests {
+    private static final PaymentMetrics METRICS = new PaymentMetrics(new SimpleMeterRegistry());
+    private static final Executor CALLBACKS = ForkJoinPool.commonPool();
+
+    @Test
+    void rehashesWhenTheStrengthChangesEitherWay() {
+        String cost4 = new BCryptPasswordEncoder(4).encode("secret");
+        String cost5 = new BCryptPasswordEncoder(5).encode("secret");
+
+        PasswordHasher hasher = new PasswordHasher(new BCryptPasswordEncoder(4), METRICS, CALLBACKS, 4, 1, 1);
+
+        assertFalse(hasher.needsRehash(cost4));
+        assertTrue(hasher.needsRehash(cost5));
+        assertTrue(new PasswordHasher(new BCryptPasswordEncoder(6), METRICS, CALLBACKS, 6, 1, 1).needsRehash(cost4));
+    }
+
+    @Test
+    void storesTheRehashedPassword() throws Exception {
+        String cost5 = new BCryptPasswordEncoder(5).encode("secret");
+        PasswordHasher hasher = new PasswordHasher(new BCryptPasswordEncoder(4), METRICS, CALLBACKS, 4, 1, 1);
+        CompletableFuture<String> stored = new CompletableFuture<>();
+
+        assertTrue(hasher.matches("secret", cost5).get(5, TimeUnit.SECONDS));
+        hasher.rehashIfNeeded("secret", cost5, stored::complete);
+
+        String rehashed = stored.get(5, TimeUnit.SECONDS);
+        assertTrue(rehashed.startsWith("$2a$04$"));
+        assertTrue(hasher.matches("secret", rehashed).get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void runsWhatFollowsTheHashOffTheHashingPool() throws Exception {
+        PasswordHasher hasher = new PasswordHasher(new BlockingEncoder(new CountDownLatch(0)), METRICS, CALLBACKS, 4, 1, 1);
+
+        String thread = hasher.encode("secret").thenApply(hash -> Thread.currentThread().getName()).get(5, TimeUnit.SECONDS);
+
+        assertFalse(thread.startsWith("password-hasher-"), thread);
+    }
+
+    @Test
+    void rejectsWorkBeyondTheQueueRightAway() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        PasswordHasher hasher = new PasswordHasher(new BlockingEncoder(release), METRICS, CALLBACKS, 4, 1, 1);
+
+        CompletableFuture<String> running = hasher.encode("first");
+        CompletableFuture<String> queued = hasher.encode("second");
+        // The single thread is busy and the single queue slot is taken, so the third one can't even wait.
+        waitUntilQueued(hasher, 1);
+        assertThrows(QueueFullException.class, () -> hasher.encode("third"));
+
+        release.countDown();
+        assertEquals("first", running.get(5, TimeUnit.SECONDS));
+        assertEquals("second", queued.get(5, TimeUnit.SECONDS));
+    }
+
+    private static void waitUntilQueued(PasswordHasher hasher, int expected) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (hasher.queued() < expected && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+    }
+
+    private record BlockingEncoder(CountDownLatch release) implements PasswordEncoder {
+        @Override
+        public String encode(CharSequence rawPassword) {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return rawPassword.toString();
+        }
+
+        @Override
+        public boolean matches(CharSequence rawPassword, String encodedPassword) {
+            return rawPassword.toString().equals(encodedPassword);
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package edu.octavio.simplified_picpay.service.async;
+
+import edu.octavio.simplified_picpay.UserFixtures;
+import edu.octavio.simplified_picpay.domain.model.User;
+import edu.octavio.simplified_picpay.domain.model.enums.UserType;
+import edu.octavio.simplified_picpay.service.UserService;
+import edu.octavio.simplified_picpay.service.exception.QueueFullException;
+import edu.octavio.simplified_picpay.service.ledger.LedgerReconciliation;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:picpay_async",
+        "spring.jpa.show-sql=false",
+        "api.transaction.async.enabled=true",
+        "api.transaction.async.shards=4",
+        "api.transaction.async.batch-size=16"
+})
+@ActiveProfiles(profiles = "dev")
+class AsyncTransferServiceTests {
+    private static final long TIMEOUT_SECONDS = 30;
+
+    @Autowired
+    private AsyncTransferService asyncTransferService;
+    @Autowired
+    private UserService userService;
+    @Autowired
+    private LedgerReconciliation ledgerReconciliation;
+
+    @Test
+    void appliesTheTransfersOfAPayerInTheOrderTheyWereAccepted() throws InterruptedException {
+        User payee = userService.create(UserFixtures.newUser(UserType.COMMON, BigDecimal.ZERO));
+        List<String> first = new ArrayList<>();
+        List<String> second = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            Long payer = userService.create(UserFixtures.newUser(UserType.COMMON, BigDecimal.TEN)).getId();
+            // Only one of them fits in the balance: the one accepted first.
+            first.add(asyncTransferService.submit(payer, payee.getId(), BigDecimal.valueOf(6), null).id());
+            second.add(asyncTransferService.submit(payer, payee.getId(), BigDecimal.valueOf(5), null).id());
+        }
+
+        for (int i = 0; i < first.size(); i++) {
+            assertEquals(TransferStatus.State.COMPLETED, awaitDone(first.get(i)).state());
+            TransferStatus rejected = awaitDone(second.get(i));
+            assertEquals(TransferStatus.State.FAILED, rejected.state());
+            assertEquals("Payer doesn't have enough money", rejected.error());
+        }
+        assertEquals(0, BigDecimal.valueOf(6 * 20).compareTo(userService.findById(payee.getId()).getTotalBalance()));
+    }
+
+    @Test
+    void reportsOnlyTheFailingTransferOfABatch() throws InterruptedException {
+        User payer = userService.create(UserFixtures.newUser(UserType.COMMON, BigDecimal.valueOf(100)));
+        User payee = userService.create(UserFixtures.newUser(UserType.COMMON, BigDecimal.ZERO));
+        List<String> valid = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            valid.add(asyncTransferService.submit(payer.getId(), payee.getId(), BigDecimal.ONE, null).id());
+        }
+        String unknownPayee = asyncTransferService.submit(payer.getId(), Long.MAX_VALUE, BigDecimal.ONE, null).id();
+        for (int i = 0; i < 5; i++) {
+            valid.add(asyncTransferService.submit(payer.getId(), payee.getId(), BigDecimal.ONE, null).id());
+        }
+
+        TransferStatus failed = awaitDone(unknownPayee);
+        assertEquals(TransferStatus.State.FAILED, failed.state());
+        assertEquals("Resource not found", failed.error());
+        for (String id : valid) {
+            assertEquals(TransferStatus.State.COMPLETED, awaitDone(id).state());
+        }
+        assertEquals(0, BigDecimal.valueOf(90).compareTo(userService.findById(payer.getId()).getTotalBalance()));
+        assertEquals(0, BigDecimal.TEN.compareTo(userService.findById(payee.getId()).getTotalBalance()));
+    }
+
+    @Test
+    void completesCrossingTransfersBetweenShards() throws InterruptedException {
+        List<Long> users = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            users.add(userService.create(UserFixtures.newUser(UserType.COMMON, BigDecimal.valueOf(1_000))).getId());
+        }
+        // Every shard's batches debit and credit the same few accounts, in no particular order.
+        List<String> ids = new ArrayList<>();
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int i = 0; i < 400; i++) {
+            int payer = random.nextInt(users.size());
+            int payee = (payer + 1 + random.nextInt(users.size() - 1)) % users.size();
+            ids.add(asyncTransferService.submit(users.get(payer), users.get(payee), BigDecimal.ONE, null).id());
+        }
+
+        for (String id : ids) {
+            assertEquals(TransferStatus.State.COMPLETED, awaitDone(id).state());
+        }
+        BigDecimal total = users.stream().map(id -> userService.findById(id).getTotalBalance()).reduce(BigDecimal.ZERO, BigDecimal::add);
+        assertEquals(0, BigDecimal.valueOf(8_000).compareTo(total));
+        assertTrue(ledgerReconciliation.reconcile().mismatches().isEmpty());
+    }
+
+    @Test
+    @DirtiesContext
+    void appliesQueuedTransfersBeforeStopping() {
+        User payer = userService.create(UserFixtures.newUser(UserType.COMMON, BigDecimal.valueOf(1_000)));
+        User payee = userService.create(UserFixtures.newUser(UserType.COMMON, BigDecimal.ZERO));
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            ids.add(asyncTransferService.submit(payer.getId(), payee.getId(), BigDecimal.ONE, null).id());
+        }
+
+        asyncTransferService.stop();
+
+        assertFalse(asyncTransferService.isRunning());
+        assertEquals(0, asyncTransferService.queued());
+        for (String id : ids) {
+            assertEquals(TransferStatus.State.COMPLETED, asyncTransferService.findStatus(id).state());
+        }
+        assertThrows(QueueFullException.class, () -> asyncTransferService.submit(payer.getId(), payee.getId(), BigDecimal.ONE, null));
+    }
+
+    private TransferStatus awaitDone(String id) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(TIMEOUT_SECONDS);
+        TransferStatus status = asyncTransferService.findStatus(id);
+        while (status.state() == TransferStatus.State.QUEUED && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+            status = asyncTransferService.findStatus(id);
+        }
+        return status;
+    }
+}
@@ -0,0 +1,150 @@
+package edu.octavio.simplified_picpay.service.authorization;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpServer;
+import edu.octavio.simplified_picpay.infra.authorization.AuthorizerStub;
+import edu.octavio.simplified_picpay.infra.authorization.HttpTransferAuthorizer;
+import edu.octavio.simplified_picpay.service.exception.AuthorizerUnavailableException;
+import edu.octavio.simplified_picpay.service.exception.BusinessException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TransferAuthorizationGuardTests {
+    private static final Duration TIMEOUT = Duration.ofMillis(200);
+    private static final Duration OPEN_DURATION = Duration.ofSeconds(10);
+
+    private final AtomicLong clock = new AtomicLong();
+    private AuthorizerStub stub;
+    private TransferAuthorizationGuard guard;
+
+    @BeforeEach
+    void startStub() throws Exception {
+        stub = new AuthorizerStub(0, Duration.ZERO, 0, 0);
+        stub.start();
+        HttpTransferAuthorizer authorizer = new HttpTransferAuthorizer(new ObjectMapper(), stub.uri(), TIMEOUT);
+        guard = new TransferAuthorizationGuard(authorizer, TIMEOUT, 4,
+                new CircuitBreaker(4, 4, 0.5, OPEN_DURATION, clock::get), new BigDecimal("10.00"));
+    }
+
+    @AfterEach
+    void stopStub() {
+        guard.shutdown();
+        stub.close();
+    }
+
+    @Test
+    void authorizesAndDeniesAsTheAuthorizerAnswers() {
+        assertDoesNotThrow(() -> guard.authorize(1L, 2L, new BigDecimal("100.00")));
+
+        stub.setDenyRate(1);
+        assertThrows(BusinessException.class, () -> guard.authorize(1L, 2L, new BigDecimal("100.00")));
+        assertEquals(2, guard.calls());
+        assertEquals(0, guard.failures());
+    }
+
+    @Test
+    void fallsBackToTheDegradedLimitWhenTheAuthorizerIsTooSlow() {
+        stub.setLatency(TIMEOUT.multipliedBy(5));
+
+        long start = System.nanoTime();
+        assertDoesNotThrow(() -> guard.authorize(1L, 2L, new BigDecimal("10.00")));
+        assertThrows(AuthorizerUnavailableException.class, () -> guard.authorize(1L, 2L, new BigDecimal("10.01")));
+        // Neither caller waited for the authorizer's answer.
+        assertTrue(System.nanoTime() - start < TIMEOUT.multipliedBy(4).toNanos());
+        assertEquals(2, guard.failures());
+        assertEquals(2, guard.degraded());
+    }
+
+    @Test
+    void treatsASuccessWithoutAnAuthorizationFieldAsAFailure() throws Exception {
+        HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/authorize", exchange -> {
+            byte[] body = "{\"status\":\"success\"}".getBytes(StandardCharsets.UTF_8);
+            try {
+                exchange.sendResponseHeaders(200, body.length);
+                exchange.getResponseBody().write(body);
+            } finally {
+                exchange.close();
+            }
+        });
+        server.start();
+        URI uri = URI.create("http://localhost:" + server.getAddress().getPort() + "/authorize");
+        TransferAuthorizationGuard lenient = new TransferAuthorizationGuard(new HttpTransferAuthorizer(new ObjectMapper(), uri, TIMEOUT),
+                TIMEOUT, 4, new CircuitBreaker(4, 4, 0.5, OPEN_DURATION, clock::get), new BigDecimal("10.00"));
+        try {
+            AuthorizerUnavailableException e = assertThrows(AuthorizerUnavailableException.class,
+                    () -> lenient.authorize(1L, 2L, new BigDecimal("100.00")));
+            assertEquals(OPEN_DURATION, e.getRetryAfter());
+            assertEquals(1, lenient.failures());
+            assertEquals(1, lenient.degraded());
+        } finally {
+            lenient.shutdown();
+            server.stop(0);
+        }
+    }
+
+    @Test
+    void stopsCallingWhileTheCircuitIsOpen() {
+        stub.setErrorRate(1);
+        for (int i = 0; i < 4; i++) {
+            assertThrows(AuthorizerUnavailableException.class, () -> guard.authorize(1L, 2L, new BigDecimal("100.00")));
+        }
+        assertFalse(guard.isCircuitClosed());
+
+        stub.setErrorRate(0);
+        assertThrows(AuthorizerUnavailableException.class, () -> guard.authorize(1L, 2L, new BigDecimal("100.00")));
+        assertEquals(4, guard.calls());
+
+        // After the open duration, one successful trial call closes it again.
+        clock.addAndGet(OPEN_DURATION.toNanos());
+        assertDoesNotThrow(() -> guard.authorize(1L, 2L, new BigDecimal("100.00")));
+        assertTrue(guard.isCircuitClosed());
+        assertEquals(5, guard.calls());
+    }
+
+    @Test
+    void doesNotQueueCallsBeyondTheBulkhead() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(1);
+        TransferAuthorizationGuard single = new TransferAuthorizationGuard((payerId, payeeId, value) -> {
+            started.countDown();
+            try {
+                return release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+        }, Duration.ofSeconds(5), 1, new CircuitBreaker(4, 4, 0.5, OPEN_DURATION, clock::get), BigDecimal.ZERO);
+        try {
+            Thread waiting = new Thread(() -> single.authorize(1L, 2L, BigDecimal.ONE));
+            waiting.start();
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+
+            // The only thread is taken, so the second call is decided right away without a call.
+            assertThrows(AuthorizerUnavailableException.class, () -> single.authorize(3L, 4L, BigDecimal.ONE));
+            assertEquals(1, single.calls());
+            assertTrue(single.isCircuitClosed());
+
+            release.countDown();
+            waiting.join(5000);
+        } finally {
+            single.shutdown();
+        }
+    }
+}
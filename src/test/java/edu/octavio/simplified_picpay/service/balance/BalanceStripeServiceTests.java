@@ -0,0 +1,110 @@
+package edu.octavio.simplified_picpay.service.balance;
+
+import edu.octavio.simplified_picpay.UserFixtures;
+import edu.octavio.simplified_picpay.domain.model.User;
+import edu.octavio.simplified_picpay.domain.model.enums.UserType;
+import edu.octavio.simplified_picpay.domain.repository.UserRepository;
+import edu.octavio.simplified_picpay.service.TransactionService;
+import edu.octavio.simplified_picpay.service.UserService;
+import edu.octavio.simplified_picpay.service.ledger.LedgerReconciliation;
+import edu.octavio.simplified_picpay.service.ledger.LedgerService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:picpay_stripes;LOCK_TIMEOUT=10000",
+        "spring.jpa.show-sql=false",
+        "api.balance.stripes.merchant-stripes=" + BalanceStripeServiceTests.STRIPES
+})
+@ActiveProfiles(profiles = "dev")
+class BalanceStripeServiceTests {
+    static final int STRIPES = 8;
+    private static final int PAYERS = 16;
+    private static final int TRANSFERS_PER_PAYER = 50;
+
+    @Autowired
+    private BalanceStripeService balanceStripes;
+    @Autowired
+    private TransactionService transactionService;
+    @Autowired
+    private UserService userService;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private LedgerService ledgerService;
+    @Autowired
+    private LedgerReconciliation ledgerReconciliation;
+
+    @Test
+    void concurrentCreditsToAStripedMerchantAddUp() throws Exception {
+        User merchant = userService.create(UserFixtures.newUser(UserType.MERCHANT, BigDecimal.valueOf(100)));
+        assertEquals(STRIPES, balanceStripes.stripeCount(merchant.getId()));
+
+        List<Long> payers = new ArrayList<>();
+        for (int i = 0; i < PAYERS; i++) {
+            payers.add(userService.create(UserFixtures.newUser(UserType.COMMON, BigDecimal.valueOf(1000))).getId());
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(PAYERS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        try {
+            for (Long payer : payers) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < TRANSFERS_PER_PAYER; i++) {
+                        transactionService.transfer(payer, merchant.getId(), BigDecimal.ONE);
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(2, TimeUnit.MINUTES);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        BigDecimal expected = BigDecimal.valueOf(100 + PAYERS * TRANSFERS_PER_PAYER);
+        User credited = userRepository.findById(merchant.getId()).orElseThrow();
+        assertEquals(0, BigDecimal.valueOf(100).compareTo(credited.getBalance()));
+        assertEquals(0, expected.compareTo(credited.getTotalBalance()));
+        assertEquals(0, expected.compareTo(ledgerService.balanceOf(merchant.getId())));
+        assertTrue(ledgerReconciliation.reconcile().mismatches().isEmpty());
+    }
+
+    @Test
+    void merchantBecomingCommonCollapsesItsStripes() {
+        User merchant = userService.create(UserFixtures.newUser(UserType.MERCHANT, BigDecimal.ZERO));
+        User payer = userService.create(UserFixtures.newUser(UserType.COMMON, BigDecimal.valueOf(100)));
+        User payee = userService.create(UserFixtures.newUser(UserType.COMMON, BigDecimal.ZERO));
+        transactionService.transfer(payer.getId(), merchant.getId(), BigDecimal.valueOf(60));
+
+        User change = new User();
+        change.setId(merchant.getId());
+        change.setUserType(UserType.COMMON);
+        userService.update(merchant.getId(), change);
+
+        assertEquals(0, balanceStripes.stripeCount(merchant.getId()));
+        assertEquals(0, BigDecimal.valueOf(60).compareTo(userRepository.findById(merchant.getId()).orElseThrow().getBalance()));
+
+        transactionService.transfer(merchant.getId(), payee.getId(), BigDecimal.valueOf(60));
+        assertEquals(0, BigDecimal.valueOf(60).compareTo(userRepository.findById(payee.getId()).orElseThrow().getBalance()));
+        assertTrue(ledgerReconciliation.reconcile().mismatches().isEmpty());
+    }
+}
@@ -0,0 +1,162 @@
+package edu.octavio.simplified_picpay.service.batch;
+
+import edu.octavio.simplified_picpay.UserFixtures;
+import edu.octavio.simplified_picpay.domain.model.Transaction;
+import edu.octavio.simplified_picpay.domain.model.User;
+import edu.octavio.simplified_picpay.domain.model.enums.UserType;
+import edu.octavio.simplified_picpay.domain.repository.UserRepository;
+import edu.octavio.simplified_picpay.service.TransactionService;
+import edu.octavio.simplified_picpay.service.UserService;
+import edu.octavio.simplified_picpay.service.balance.BalanceStripeService;
+import edu.octavio.simplified_picpay.service.exception.BatchTransferException;
+import edu.octavio.simplified_picpay.service.exception.BusinessException;
+import edu.octavio.simplified_picpay.service.ledger.LedgerReconciliation;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:picpay_batches",
+        "spring.jpa.show-sql=false",
+        "api.balance.stripes.merchant-stripes=4"
+})
+@ActiveProfiles(profiles = "dev")
+class BatchTransferServiceTests {
+    private static final int PAYEES = 120;
+    private static final int STRIPES = 4;
+    // spring.jpa.properties.hibernate.jdbc.batch_size in the dev profile
+    private static final int BATCH_SIZE = 50;
+
+    @Autowired
+    private BatchTransferService batchTransferService;
+    @Autowired
+    private UserService userService;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private LedgerReconciliation ledgerReconciliation;
+    @Autowired
+    private TransactionService transactionService;
+    @Autowired
+    private BalanceStripeService balanceStripes;
+    @Autowired
+    private StatementCounter statements;
+
+    @Test
+    void batchPaysEveryPayeeAndDebitsThePayerOnce() {
+        User payer = userService.create(UserFixtures.newUser(UserType.MERCHANT, BigDecimal.valueOf(10_000)));
+        // Part of the merchant's balance sits on its stripes.
+        User customer = userService.create(UserFixtures.newUser(UserType.COMMON, BigDecimal.valueOf(100)));
+        transactionService.transfer(customer.getId(), payer.getId(), BigDecimal.valueOf(100));
+        List<BatchTransferItem> items = new ArrayList<>();
+        for (int i = 0; i < PAYEES; i++) {
+            Long payee = userService.create(UserFixtures.newUser(UserType.COMMON, BigDecimal.ZERO)).getId();
+            items.add(new BatchTransferItem(payee, BigDecimal.valueOf(i + 1)));
+        }
+        // The same payee twice is two transactions and one credit.
+        items.add(new BatchTransferItem(items.get(0).payeeId(), BigDecimal.TEN));
+
+        statements.reset();
+        List<Transaction> transactions = batchTransferService.transfer(payer.getId(), items);
+
+        assertEquals(items.size(), transactions.size());
+        assertEquals(1, statements.count("update tb_users set balance = balance -"));
+        // One credit per payee, plus the merchant's stripes folded back into its row.
+        assertEquals(PAYEES + 1, statements.count("update tb_users set balance = balance +"));
+        // Each JDBC batch prepares the insert once.
+        long inserts = statements.count("insert into tb_transactions");
+        assertTrue(inserts >= 1 && inserts <= (items.size() + BATCH_SIZE - 1) / BATCH_SIZE, inserts + " insert statements");
+
+        BigDecimal total = BigDecimal.valueOf((long) PAYEES * (PAYEES + 1) / 2 + 10);
+        assertEquals(0, BigDecimal.valueOf(10_100).subtract(total).compareTo(totalBalanceOf(payer.getId())));
+        assertEquals(STRIPES, balanceStripes.stripeCount(payer.getId()));
+        assertEquals(0, BigDecimal.valueOf(11).compareTo(balanceOf(items.get(0).payeeId())));
+        assertEquals(0, BigDecimal.valueOf(PAYEES).compareTo(balanceOf(items.get(PAYEES - 1).payeeId())));
+        assertTrue(ledgerReconciliation.reconcile().mismatches().isEmpty());
+    }
+
+    @Test
+    void batchWithInvalidItemsReportsEachOfThemAndAppliesNothing() {
+        User payer = userService.create(UserFixtures.newUser(UserType.COMMON, BigDecimal.valueOf(100)));
+        User payee = userService.create(UserFixtures.newUser(UserType.COMMON, BigDecimal.ZERO));
+        List<BatchTransferItem> items = List.of(
+                new BatchTransferItem(payee.getId(), BigDecimal.TEN),
+                new BatchTransferItem(payee.getId(), BigDecimal.ZERO),
+                new BatchTransferItem(payer.getId(), BigDecimal.ONE));
+
+        var invalid = assertThrows(BatchTransferException.class, () -> batchTransferService.transfer(payer.getId(), items));
+        assertEquals(List.of(1, 2), invalid.getFailures().stream().map(BatchItemFailure::index).toList());
+
+        List<BatchTransferItem> unknownPayee = List.of(
+                new BatchTransferItem(payee.getId(), BigDecimal.TEN),
+                new BatchTransferItem(Long.MAX_VALUE, BigDecimal.TEN));
+        var missing = assertThrows(BatchTransferException.class, () -> batchTransferService.transfer(payer.getId(), unknownPayee));
+        assertEquals(List.of(1), missing.getFailures().stream().map(BatchItemFailure::index).toList());
+
+        List<BatchTransferItem> tooExpensive = List.of(
+                new BatchTransferItem(payee.getId(), BigDecimal.valueOf(60)),
+                new BatchTransferItem(payee.getId(), BigDecimal.valueOf(60)));
+        assertThrows(BusinessException.class, () -> batchTransferService.transfer(payer.getId(), tooExpensive));
+
+        assertEquals(0, BigDecimal.valueOf(100).compareTo(balanceOf(payer.getId())));
+        assertEquals(0, BigDecimal.ZERO.compareTo(balanceOf(payee.getId())));
+    }
+
+    private BigDecimal balanceOf(Long id) {
+        return userRepository.findById(id).orElseThrow().getBalance();
+    }
+
+    private BigDecimal totalBalanceOf(Long id) {
+        return userRepository.findById(id).orElseThrow().getTotalBalance();
+    }
+
+    @TestConfiguration
+    static class StatementCounting {
+        @Bean
+        StatementCounter statementCounter() {
+            return new StatementCounter();
+        }
+
+        @Bean
+        HibernatePropertiesCustomizer statementInspector(StatementCounter statementCounter) {
+            return properties -> properties.put(AvailableSettings.STATEMENT_INSPECTOR, statementCounter);
+        }
+    }
+
+    /**
+     * Sees every statement Hibernate prepares, including native ones. A JDBC batch is prepared once however many
+     * rows it carries.
+     */
+    static class StatementCounter implements StatementInspector {
+        private final List<String> statements = new CopyOnWriteArrayList<>();
+
+        @Override
+        public String inspect(String sql) {
+            statements.add(sql);
+            return sql;
+        }
+
+        void reset() {
+            statements.clear();
+        }
+
+        long count(String prefix) {
+            return statements.stream().filter(sql -> sql.startsWith(prefix)).count();
+        }
+    }
+}
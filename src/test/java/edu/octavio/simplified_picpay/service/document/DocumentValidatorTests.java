@@ -0,0 +1,172 @@
+package edu.octavio.simplified_picpay.service.document;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks the validator against a straightforward reference implementation on seeded random input:
+ * valid documents, formatted ones, documents with one character changed and arbitrary strings.
+ */
+class DocumentValidatorTests {
+    private static final int SAMPLES = 200_000;
+    private static final String ALPHANUMERIC = "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZ";
+    private static final String NOISE = "0123456789abcdefxyzABCDEFXYZ.-/ \u00e9";
+
+    private final DocumentValidator validator = new DocumentValidator();
+
+    @Test
+    void agreesWithTheReferenceImplementation() {
+        Random random = new Random(20241018L);
+        for (int i = 0; i < SAMPLES; i++) {
+            String document = randomInput(random);
+            assertEquals(Reference.isValid(document), validator.isValid(document), () -> "Disagreement on '" + document + "'");
+        }
+    }
+
+    @Test
+    void acceptsGeneratedDocumentsWithOrWithoutFormatting() {
+        Random random = new Random(42L);
+        for (int i = 0; i < SAMPLES; i++) {
+            String cpf = Reference.cpf(random);
+            String cnpj = Reference.cnpj(random);
+            assertTrue(validator.isValid(cpf), cpf);
+            assertTrue(validator.isValid(cnpj), cnpj);
+            assertTrue(validator.isValid(formatCpf(cpf)), cpf);
+            assertTrue(validator.isValid(formatCnpj(cnpj).toLowerCase()), cnpj);
+        }
+    }
+
+    @Test
+    void normalizesLikeTheRegex() {
+        Random random = new Random(7L);
+        for (int i = 0; i < SAMPLES; i++) {
+            String document = randomInput(random);
+            assertEquals(Reference.normalize(document), validator.normalize(document));
+        }
+    }
+
+    @Test
+    void returnsNormalizedInputUnchanged() {
+        String cnpj = "12ABC34501DE35";
+        assertSame(cnpj, validator.normalize(cnpj));
+        assertNull(validator.normalize(null));
+    }
+
+    @Test
+    void rejectsOtherLengthsAndMisplacedLetters() {
+        assertFalse(validator.isValid(null));
+        assertFalse(validator.isValid(""));
+        assertFalse(validator.isValid("123"));
+        assertFalse(validator.isValid("529982247250"));
+        assertFalse(validator.isValid("112223330001810"));
+        assertTrue(validator.isValid("529.982.247-25"));
+        assertTrue(validator.isValid("11.222.333/0001-81"));
+        assertTrue(validator.isValid("12.ABC.345/01DE-35"));
+        assertFalse(validator.isValid("52998224A25"));
+        assertFalse(validator.isValid("11222333000A81"));
+    }
+
+    @Test
+    void validatesBatchesElementByElement() {
+        Random random = new Random(99L);
+        List<String> documents = new ArrayList<>();
+        for (int i = 0; i < SAMPLES; i++) {
+            documents.add(randomInput(random));
+        }
+
+        boolean[] expected = new boolean[documents.size()];
+        for (int i = 0; i < expected.length; i++) {
+            expected[i] = Reference.isValid(documents.get(i));
+        }
+
+        assertArrayEquals(expected, validator.validateAll(documents));
+        assertArrayEquals(expected, validator.validateAll(new LinkedList<>(documents)));
+    }
+
+    private static String randomInput(Random random) {
+        return switch (random.nextInt(5)) {
+            case 0 -> Reference.cpf(random);
+            case 1 -> Reference.cnpj(random);
+            case 2 -> mutate(random.nextBoolean() ? formatCpf(Reference.cpf(random)) : formatCnpj(Reference.cnpj(random)), random);
+            case 3 -> randomString(random, ALPHANUMERIC, random.nextBoolean() ? 11 : 14);
+            default -> randomString(random, NOISE, random.nextInt(21));
+        };
+    }
+
+    private static String mutate(String document, Random random) {
+        char[] chars = document.toCharArray();
+        chars[random.nextInt(chars.length)] = NOISE.charAt(random.nextInt(NOISE.length()));
+        return new String(chars);
+    }
+
+    private static String randomString(Random random, String alphabet, int length) {
+        StringBuilder builder = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            builder.append(alphabet.charAt(random.nextInt(alphabet.length())));
+        }
+        return builder.toString();
+    }
+
+    private static String formatCpf(String cpf) {
+        return cpf.substring(0, 3) + "." + cpf.substring(3, 6) + "." + cpf.substring(6, 9) + "-" + cpf.substring(9);
+    }
+
+    private static String formatCnpj(String cnpj) {
+        return cnpj.substring(0, 2) + "." + cnpj.substring(2, 5) + "." + cnpj.substring(5, 8) + "/" + cnpj.substring(8, 12) + "-" + cnpj.substring(12);
+    }
+
+    /**
+     * The validation rules written as plainly as possible: normalize with a regex, check the shape, then compute
+     * both check digits with their weight arrays.
+     */
+    private static final class Reference {
+        private static final int[] CPF_WEIGHTS = {11, 10, 9, 8, 7, 6, 5, 4, 3, 2};
+        private static final int[] CNPJ_WEIGHTS = {6, 5, 4, 3, 2, 9, 8, 7, 6, 5, 4, 3, 2};
+
+        static String normalize(String document) {
+            return document.replaceAll("[^a-zA-Z0-9]", "").toUpperCase();
+        }
+
+        static boolean isValid(String document) {
+            String normalized = normalize(document);
+            if (normalized.matches("\\d{11}"))
+                return normalized.equals(withCheckDigits(normalized.substring(0, 9), CPF_WEIGHTS));
+            if (normalized.matches("[A-Z0-9]{12}\\d{2}"))
+                return normalized.equals(withCheckDigits(normalized.substring(0, 12), CNPJ_WEIGHTS));
+            return false;
+        }
+
+        static String cpf(Random random) {
+            return withCheckDigits(randomString(random, "0123456789", 9), CPF_WEIGHTS);
+        }
+
+        static String cnpj(Random random) {
+            return withCheckDigits(randomString(random, ALPHANUMERIC, 12), CNPJ_WEIGHTS);
+        }
+
+        // The first check digit uses the weights without their first element, the second one uses all of them.
+        private static String withCheckDigits(String base, int[] weights) {
+            String withFirst = base + checkDigit(base, weights, 1);
+            return withFirst + checkDigit(withFirst, weights, 0);
+        }
+
+        private static int checkDigit(String base, int[] weights, int offset) {
+            int sum = 0;
+            for (int i = 0; i < base.length(); i++) {
+                sum += (base.charAt(i) - '0') * weights[i + offset];
+            }
+            return sum % 11 < 2 ? 0 : 11 - sum % 11;
+        }
+    }
+}
@@ -0,0 +1,231 @@
+package edu.octavio.simplified_picpay.service.impl;
+
+import edu.octavio.simplified_picpay.UserFixtures;
+import edu.octavio.simplified_picpay.domain.model.User;
+import edu.octavio.simplified_picpay.domain.model.enums.TransactionDirection;
+import edu.octavio.simplified_picpay.domain.model.enums.UserType;
+import edu.octavio.simplified_picpay.domain.repository.UserRepository;
+import edu.octavio.simplified_picpay.domain.repository.projection.TransactionView;
+import edu.octavio.simplified_picpay.service.TransactionCursor;
+import edu.octavio.simplified_picpay.service.TransactionService;
+import edu.octavio.simplified_picpay.service.UserService;
+import edu.octavio.simplified_picpay.service.exception.BusinessException;
+import edu.octavio.simplified_picpay.service.ledger.BalanceSnapshotJob;
+import edu.octavio.simplified_picpay.service.ledger.LedgerReconciliation;
+import edu.octavio.simplified_picpay.service.ledger.LedgerService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:picpay_transfers;LOCK_TIMEOUT=10000",
+        "spring.jpa.show-sql=false"
+})
+@ActiveProfiles(profiles = "dev")
+class TransactionServiceImplTests {
+    private static final int ACCOUNTS = 5;
+    private static final int TRANSFERS = 2000;
+    private static final int THREADS = 16;
+    private static final int IDEMPOTENT_REQUESTS = 50;
+
+    @Autowired
+    private TransactionService transactionService;
+    @Autowired
+    private UserService userService;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private LedgerService ledgerService;
+    @Autowired
+    private BalanceSnapshotJob balanceSnapshotJob;
+    @Autowired
+    private LedgerReconciliation ledgerReconciliation;
+
+    @Test
+    void concurrentTransfersBetweenHotAccountsPreserveTotalBalance() throws Exception {
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < ACCOUNTS; i++) {
+            ids.add(userService.create(UserFixtures.newUser(UserType.COMMON, BigDecimal.valueOf(1000))).getId());
+        }
+        BigDecimal totalBefore = totalBalance(ids);
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger completed = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+        List<Future<?>> futures = new ArrayList<>();
+        try {
+            for (int i = 0; i < TRANSFERS; i++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    int payer = random.nextInt(ACCOUNTS);
+                    int payee = (payer + 1 + random.nextInt(ACCOUNTS - 1)) % ACCOUNTS;
+                    BigDecimal value = BigDecimal.valueOf(random.nextInt(1, 50_000), 2);
+                    try {
+                        transactionService.transfer(ids.get(payer), ids.get(payee), value);
+                        completed.incrementAndGet();
+                    } catch (BusinessException e) {
+                        rejected.incrementAndGet();
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(2, TimeUnit.MINUTES);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(TRANSFERS, completed.get() + rejected.get());
+        assertEquals(0, totalBefore.compareTo(totalBalance(ids)));
+        for (Long id : ids) {
+            assertTrue(userRepository.findById(id).orElseThrow().getBalance().signum() >= 0);
+            assertEquals(0, balanceOf(id).compareTo(ledgerService.balanceOf(id)));
+        }
+    }
+
+    @Test
+    void ledgerBalanceIsTheSnapshotPlusLaterEntries() {
+        User payer = userService.create(UserFixtures.newUser(UserType.COMMON, BigDecimal.valueOf(500)));
+        User payee = userService.create(UserFixtures.newUser(UserType.COMMON, BigDecimal.ZERO));
+
+        transactionService.transfer(payer.getId(), payee.getId(), BigDecimal.valueOf(100));
+        assertTrue(balanceSnapshotJob.snapshot(LocalDateTime.now().plusSeconds(1)) > 0);
+        transactionService.transfer(payer.getId(), payee.getId(), BigDecimal.valueOf(50));
+
+        assertEquals(0, BigDecimal.valueOf(350).compareTo(ledgerService.balanceOf(payer.getId())));
+        assertEquals(0, BigDecimal.valueOf(150).compareTo(ledgerService.balanceOf(payee.getId())));
+        assertTrue(ledgerReconciliation.reconcile().mismatches().isEmpty());
+    }
+
+    @Test
+    void transferRejectsMerchantPayer() {
+        User merchant = userService.create(UserFixtures.newUser(UserType.MERCHANT, BigDecimal.valueOf(100)));
+        User common = userService.create(UserFixtures.newUser(UserType.COMMON, BigDecimal.valueOf(100)));
+
+        assertThrows(BusinessException.class, () -> transactionService.transfer(merchant.getId(), common.getId(), BigDecimal.TEN));
+    }
+
+    @Test
+    void transferRejectsNonPositiveValue() {
+        User payer = userService.create(UserFixtures.newUser(UserType.COMMON, BigDecimal.valueOf(100)));
+        User payee = userService.create(UserFixtures.newUser(UserType.COMMON, BigDecimal.valueOf(100)));
+
+        assertThrows(BusinessException.class, () -> transactionService.transfer(payer.getId(), payee.getId(), BigDecimal.ZERO));
+        assertThrows(BusinessException.class, () -> transactionService.transfer(payer.getId(), payee.getId(), BigDecimal.valueOf(-5)));
+    }
+
+    @Test
+    void concurrentRequestsWithTheSameIdempotencyKeyTransferOnlyOnce() throws Exception {
+        User payer = userService.create(UserFixtures.newUser(UserType.COMMON, BigDecimal.valueOf(1000)));
+        User payee = userService.create(UserFixtures.newUser(UserType.COMMON, BigDecimal.valueOf(1000)));
+        String idempotencyKey = UUID.randomUUID().toString();
+
+        ExecutorService executor = Executors.newFixedThreadPool(IDEMPOTENT_REQUESTS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Long>> futures = new ArrayList<>();
+        try {
+            for (int i = 0; i < IDEMPOTENT_REQUESTS; i++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    return transactionService.transfer(payer.getId(), payee.getId(), BigDecimal.TEN, idempotencyKey).id();
+                }));
+            }
+            start.countDown();
+            Set<Long> transactionIds = new HashSet<>();
+            for (Future<Long> future : futures) {
+                transactionIds.add(future.get(1, TimeUnit.MINUTES));
+            }
+            assertEquals(1, transactionIds.size());
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(0, BigDecimal.valueOf(990).compareTo(balanceOf(payer.getId())));
+        assertEquals(0, BigDecimal.valueOf(1010).compareTo(balanceOf(payee.getId())));
+    }
+
+    @Test
+    void repeatedRequestGetsTheRememberedTransaction() {
+        User payer = userService.create(UserFixtures.newUser(UserType.COMMON, BigDecimal.valueOf(100)));
+        User payee = userService.create(UserFixtures.newUser(UserType.COMMON, BigDecimal.valueOf(100)));
+        String idempotencyKey = UUID.randomUUID().toString();
+
+        TransactionView first = transactionService.transfer(payer.getId(), payee.getId(), BigDecimal.TEN, idempotencyKey);
+
+        assertEquals(payee.getName(), first.payeeName());
+        assertSame(first, transactionService.transfer(payer.getId(), payee.getId(), BigDecimal.TEN, idempotencyKey));
+        assertEquals(0, BigDecimal.valueOf(90).compareTo(balanceOf(payer.getId())));
+    }
+
+    @Test
+    void idempotencyKeyCannotBeReusedForADifferentTransfer() {
+        User payer = userService.create(UserFixtures.newUser(UserType.COMMON, BigDecimal.valueOf(100)));
+        User payee = userService.create(UserFixtures.newUser(UserType.COMMON, BigDecimal.valueOf(100)));
+        String idempotencyKey = UUID.randomUUID().toString();
+
+        transactionService.transfer(payer.getId(), payee.getId(), BigDecimal.TEN, idempotencyKey);
+
+        assertThrows(BusinessException.class, () -> transactionService.transfer(payer.getId(), payee.getId(), BigDecimal.ONE, idempotencyKey));
+        assertEquals(0, BigDecimal.valueOf(90).compareTo(balanceOf(payer.getId())));
+    }
+
+    private BigDecimal balanceOf(Long id) {
+        return userRepository.findById(id).orElseThrow().getBalance();
+    }
+
+    private BigDecimal totalBalance(List<Long> ids) {
+        return userRepository.findAllById(ids).stream()
+                .map(User::getBalance)
+                .reduce(BigDecimal.ZERO, BigDecimal::add);
+    }
+
+    @Test
+    void historyOfBothDirectionsPagesThroughEveryTransactionNewestFirst() {
+        User user = userService.create(UserFixtures.newUser(UserType.COMMON, BigDecimal.valueOf(100)));
+        User other = userService.create(UserFixtures.newUser(UserType.COMMON, BigDecimal.valueOf(100)));
+        List<Long> expected = new ArrayList<>();
+        for (int i = 0; i < 7; i++) {
+            boolean outgoing = ThreadLocalRandom.current().nextBoolean();
+            User payer = outgoing ? user : other;
+            User payee = outgoing ? other : user;
+            expected.add(0, transactionService.transfer(payer.getId(), payee.getId(), BigDecimal.ONE).getId());
+        }
+
+        List<Long> seen = new ArrayList<>();
+        TransactionCursor after = null;
+        List<TransactionView> page;
+        do {
+            page = transactionService.findHistory(user.getId(), TransactionDirection.ALL, null, null, after, 3);
+            page.forEach(view -> seen.add(view.id()));
+            if (!page.isEmpty())
+                after = new TransactionCursor(page.get(page.size() - 1).createdAt(), page.get(page.size() - 1).id());
+        } while (page.size() == 3);
+
+        assertEquals(expected, seen);
+    }
+}
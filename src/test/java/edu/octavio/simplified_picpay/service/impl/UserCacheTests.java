@@ -0,0 +1,104 @@
+package edu.octavio.simplified_picpay.service.impl;
+
+import edu.octavio.simplified_picpay.UserFixtures;
+import edu.octavio.simplified_picpay.domain.model.User;
+import edu.octavio.simplified_picpay.domain.model.enums.UserType;
+import edu.octavio.simplified_picpay.service.TransactionService;
+import edu.octavio.simplified_picpay.service.UserService;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:picpay_user_cache",
+        "spring.jpa.show-sql=false"
+})
+@ActiveProfiles(profiles = "dev")
+class UserCacheTests {
+    @Autowired
+    private UserService userService;
+    @Autowired
+    private TransactionService transactionService;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @Test
+    void servesRepeatedLookupsFromTheCache() {
+        User user = userService.create(UserFixtures.newUser(UserType.COMMON, BigDecimal.TEN));
+
+        userService.findById(user.getId());
+        long hits = statistics.getDomainDataRegionStatistics("users").getHitCount();
+        userService.findById(user.getId());
+        assertEquals(hits + 1, statistics.getDomainDataRegionStatistics("users").getHitCount());
+
+        userService.findByEmail(user.getEmail());
+        long naturalIdHits = statistics.getNaturalIdCacheHitCount();
+        assertEquals(user.getId(), userService.findByEmail(user.getEmail()).getId());
+        assertEquals(naturalIdHits + 1, statistics.getNaturalIdCacheHitCount());
+    }
+
+    @Test
+    void neverServesABalanceFromBeforeATransfer() {
+        User payer = userService.create(UserFixtures.newUser(UserType.COMMON, BigDecimal.valueOf(100)));
+        User payee = userService.create(UserFixtures.newUser(UserType.MERCHANT, BigDecimal.ZERO));
+        userService.findById(payer.getId());
+        userService.findById(payee.getId());
+
+        transactionService.transfer(payer.getId(), payee.getId(), BigDecimal.valueOf(30));
+
+        assertEquals(0, BigDecimal.valueOf(70).compareTo(userService.findById(payer.getId()).getTotalBalance()));
+        assertEquals(0, BigDecimal.valueOf(30).compareTo(userService.findById(payee.getId()).getTotalBalance()));
+    }
+
+    @Test
+    void followsAnEmailChange() {
+        User user = userService.create(UserFixtures.newUser(UserType.COMMON, BigDecimal.TEN));
+        String previousEmail = user.getEmail();
+        userService.findByEmail(previousEmail);
+
+        User change = new User();
+        change.setId(user.getId());
+        change.setEmail("changed-" + previousEmail);
+        userService.update(user.getId(), change);
+
+        assertTrue(userService.findByEmailOptional(previousEmail).isEmpty());
+        assertEquals(user.getId(), userService.findByEmail("changed-" + previousEmail).getId());
+        userService.delete(user.getId());
+        assertTrue(userService.findByEmailOptional("changed-" + previousEmail).isEmpty());
+    }
+
+    @Test
+    void readsCredentialsPastTheCache() {
+        User user = userService.create(UserFixtures.newUser(UserType.COMMON, BigDecimal.TEN));
+        userService.findByEmail(user.getEmail());
+
+        // Another node changes the password, and this node's cache never hears of it.
+        jdbcTemplate.update("update tb_users set password = ? where id = ?", "changed", user.getId());
+        assertEquals("secret", userService.findByEmail(user.getEmail()).getPassword());
+        assertEquals("changed", userService.findCredentials(user.getEmail()).orElseThrow().getPassword());
+
+        jdbcTemplate.update("delete from tb_ledger_entries where user_id = ?", user.getId());
+        jdbcTemplate.update("delete from tb_users where id = ?", user.getId());
+        assertTrue(userService.findCredentials(user.getEmail()).isEmpty());
+    }
+}
@@ -0,0 +1,119 @@
+package edu.octavio.simplified_picpay.service.notification;
+
+import edu.octavio.simplified_picpay.UserFixtures;
+import edu.octavio.simplified_picpay.domain.model.OutboxMessage;
+import edu.octavio.simplified_picpay.domain.model.Transaction;
+import edu.octavio.simplified_picpay.domain.model.User;
+import edu.octavio.simplified_picpay.domain.model.enums.UserType;
+import edu.octavio.simplified_picpay.domain.repository.OutboxMessageRepository;
+import edu.octavio.simplified_picpay.service.TransactionService;
+import edu.octavio.simplified_picpay.service.UserService;
+import edu.octavio.simplified_picpay.service.exception.BusinessException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:picpay_outbox",
+        "spring.jpa.show-sql=false",
+        "api.scheduling.enabled=false",
+        "api.notification.notifier=recording",
+        "api.notification.outbox.backoff=PT0S",
+        "api.notification.outbox.max-attempts=3"
+})
+@ActiveProfiles(profiles = "dev")
+class OutboxDispatcherTests {
+
+    @Autowired
+    private OutboxDispatcher dispatcher;
+    @Autowired
+    private OutboxMessageRepository outbox;
+    @Autowired
+    private RecordingNotifier notifier;
+    @Autowired
+    private TransactionService transactionService;
+    @Autowired
+    private UserService userService;
+
+    @BeforeEach
+    void clear() {
+        outbox.deleteAll();
+        notifier.delivered.clear();
+        notifier.failing.clear();
+    }
+
+    @Test
+    void transferIsNotifiedOnceDeliveryWorks() {
+        User payer = userService.create(UserFixtures.newUser(UserType.COMMON, BigDecimal.valueOf(100)));
+        User payee = userService.create(UserFixtures.newUser(UserType.COMMON, BigDecimal.ZERO));
+        assertThrows(BusinessException.class, () -> transactionService.transfer(payer.getId(), payee.getId(), BigDecimal.valueOf(500)));
+        assertEquals(0, outbox.count());
+
+        notifier.failing.add(payee.getId());
+        Transaction transaction = transactionService.transfer(payer.getId(), payee.getId(), BigDecimal.TEN);
+
+        assertEquals(1, dispatcher.dispatch());
+        OutboxMessage retried = outbox.findAll().get(0);
+        assertEquals(1, retried.getAttempts());
+        assertTrue(retried.getLastError().contains("unreachable"));
+
+        notifier.failing.clear();
+        assertEquals(1, dispatcher.dispatch());
+        assertEquals(0, outbox.count());
+        assertEquals(List.of(transaction.getId()), notifier.delivered.stream().map(TransferNotification::transactionId).toList());
+        assertEquals(payee.getId(), notifier.delivered.get(0).payeeId());
+    }
+
+    @Test
+    void deliveryIsAbandonedAfterTheLastAttempt() {
+        User payer = userService.create(UserFixtures.newUser(UserType.COMMON, BigDecimal.valueOf(100)));
+        User payee = userService.create(UserFixtures.newUser(UserType.COMMON, BigDecimal.ZERO));
+        notifier.failing.add(payee.getId());
+        transactionService.transfer(payer.getId(), payee.getId(), BigDecimal.TEN);
+
+        for (int attempt = 0; attempt < 3; attempt++) {
+            assertEquals(1, dispatcher.dispatch());
+        }
+        assertEquals(0, dispatcher.dispatch());
+
+        OutboxMessage abandoned = outbox.findAll().get(0);
+        assertEquals(3, abandoned.getAttempts());
+        assertNull(abandoned.getNextAttemptAt());
+        assertTrue(notifier.delivered.isEmpty());
+    }
+
+    static class RecordingNotifier implements TransferNotifier {
+        final List<TransferNotification> delivered = new CopyOnWriteArrayList<>();
+        final Set<Long> failing = ConcurrentHashMap.newKeySet();
+
+        @Override
+        public void notify(TransferNotification notification) {
+            if (failing.contains(notification.payeeId()))
+                throw new IllegalStateException("Payee " + notification.payeeId() + " unreachable");
+            delivered.add(notification);
+        }
+    }
+
+    @TestConfiguration
+    static class NotifierConfig {
+        @Bean
+        RecordingNotifier recordingNotifier() {
+            return new RecordingNotifier();
+        }
+    }
+}
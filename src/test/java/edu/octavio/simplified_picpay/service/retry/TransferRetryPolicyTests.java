@@ -0,0 +1,59 @@
+package edu.octavio.simplified_picpay.service.retry;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class TransferRetryPolicyTests {
+
+    @Test
+    void retriesConflictsUntilTheWorkSucceeds() {
+        TransferRetryPolicy policy = new TransferRetryPolicy(4, 1, 2);
+        AtomicInteger calls = new AtomicInteger();
+
+        String result = policy.execute("test", () -> {
+            if (calls.incrementAndGet() < 3)
+                throw new CannotAcquireLockException("locked");
+            return "done";
+        });
+
+        assertEquals("done", result);
+        TransferRetryStats stats = policy.stats();
+        assertEquals(3, stats.attempts());
+        assertEquals(2, stats.conflicts());
+        assertEquals(2, stats.retries());
+        assertEquals(0, stats.exhausted());
+    }
+
+    @Test
+    void givesUpAfterMaxAttempts() {
+        TransferRetryPolicy policy = new TransferRetryPolicy(3, 1, 2);
+
+        assertThrows(ObjectOptimisticLockingFailureException.class, () -> policy.execute("test", () -> {
+            throw new ObjectOptimisticLockingFailureException("User", 1L);
+        }));
+
+        TransferRetryStats stats = policy.stats();
+        assertEquals(3, stats.attempts());
+        assertEquals(1, stats.exhausted());
+        assertEquals(1.0, stats.conflictRate());
+    }
+
+    @Test
+    void doesNotRetryOtherFailures() {
+        TransferRetryPolicy policy = new TransferRetryPolicy(3, 1, 2);
+        AtomicInteger calls = new AtomicInteger();
+
+        assertThrows(IllegalStateException.class, () -> policy.execute("test", () -> {
+            calls.incrementAndGet();
+            throw new IllegalStateException("boom");
+        }));
+
+        assertEquals(1, calls.get());
+    }
+}
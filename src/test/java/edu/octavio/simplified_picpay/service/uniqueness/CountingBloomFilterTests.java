@@ -0,0 +1,45 @@
+package edu.octavio.simplified_picpay.service.uniqueness;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CountingBloomFilterTests {
+
+    @Test
+    void neverForgetsAnAddedValue() {
+        CountingBloomFilter filter = CountingBloomFilter.create(10_000, 0.01);
+        IntStream.range(0, 10_000).forEach(i -> filter.add("user" + i + "@example.com"));
+
+        assertTrue(IntStream.range(0, 10_000).allMatch(i -> filter.mightContain("user" + i + "@example.com")));
+    }
+
+    @Test
+    void keepsCloseToTheConfiguredFalsePositiveRate() {
+        CountingBloomFilter filter = CountingBloomFilter.create(10_000, 0.01);
+        IntStream.range(0, 10_000).forEach(i -> filter.add("user" + i + "@example.com"));
+
+        long falsePositives = IntStream.range(0, 100_000).filter(i -> filter.mightContain("other" + i + "@example.com")).count();
+        assertTrue(falsePositives < 2_000, falsePositives + " false positives out of 100000");
+    }
+
+    @Test
+    void forgetsRemovedValuesOnly() {
+        CountingBloomFilter filter = CountingBloomFilter.create(1_000, 0.01);
+        IntStream.range(0, 1_000).forEach(i -> filter.add("user" + i + "@example.com"));
+
+        IntStream.range(0, 500).forEach(i -> filter.remove("user" + i + "@example.com"));
+
+        long remembered = IntStream.range(0, 500).filter(i -> filter.mightContain("user" + i + "@example.com")).count();
+        assertTrue(remembered < 50, remembered + " of 500 removed values still reported");
+        assertTrue(IntStream.range(500, 1_000).allMatch(i -> filter.mightContain("user" + i + "@example.com")));
+    }
+
+    @Test
+    void isEmptyWhenCreated() {
+        assertFalse(CountingBloomFilter.create(1, 0.5).mightContain("anyone@example.com"));
+    }
+}
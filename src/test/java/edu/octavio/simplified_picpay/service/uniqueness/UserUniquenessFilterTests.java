@@ -0,0 +1,67 @@
+package edu.octavio.simplified_picpay.service.uniqueness;
+
+import edu.octavio.simplified_picpay.UserFixtures;
+import edu.octavio.simplified_picpay.domain.model.User;
+import edu.octavio.simplified_picpay.domain.model.enums.UserType;
+import edu.octavio.simplified_picpay.service.UserService;
+import edu.octavio.simplified_picpay.service.exception.BusinessException;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:picpay_uniqueness",
+        "spring.jpa.show-sql=false",
+        "api.user.uniqueness-filter.expected-users=1000"
+})
+@ActiveProfiles(profiles = "dev")
+class UserUniquenessFilterTests {
+    @Autowired
+    private UserUniquenessFilter filter;
+    @Autowired
+    private UserService userService;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void followsCreatesAndDeletes() {
+        assertTrue(filter.isReady());
+        User user = UserFixtures.newUser(UserType.COMMON, BigDecimal.TEN);
+        assertFalse(filter.emailMightExist(user.getEmail()));
+
+        User created = userService.create(user);
+        assertTrue(filter.emailMightExist(created.getEmail().toUpperCase()));
+        assertTrue(filter.documentMightExist(created.getDocument()));
+
+        userService.delete(created.getId());
+        assertFalse(filter.emailMightExist(created.getEmail()));
+        assertFalse(filter.documentMightExist(created.getDocument()));
+    }
+
+    @Test
+    void leavesTheFinalWordToTheUniqueConstraints() {
+        // Written behind the application's back, so the filter doesn't know the email is taken.
+        User existing = UserFixtures.newUser(UserType.COMMON, BigDecimal.TEN);
+        jdbcTemplate.update("insert into tb_users (id, name, document, email, password, balance, user_type, version) " +
+                        "values (next value for tb_users_seq, ?, ?, ?, ?, ?, ?, 0)",
+                existing.getName(), existing.getDocument(), existing.getEmail(), existing.getPassword(), existing.getBalance(), existing.getUserType().name());
+        assertFalse(filter.emailMightExist(existing.getEmail()));
+
+        User duplicate = UserFixtures.newUser(UserType.COMMON, BigDecimal.TEN);
+        duplicate.setEmail(existing.getEmail());
+        BusinessException e = assertThrows(BusinessException.class, () -> userService.create(duplicate));
+        assertEquals("The email already exists", e.getMessage());
+
+        assertTrue(filter.rebuild());
+        assertTrue(filter.emailMightExist(existing.getEmail()));
+    }
+}